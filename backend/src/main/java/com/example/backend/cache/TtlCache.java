@@ -0,0 +1,249 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.CacheStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache with a fixed time-to-live per entry and LRU eviction.
+ * Concurrent misses for the same key are coalesced so only one caller runs the loader
+ * while the others wait for its result.
+ * <p>
+ * Expired entries are kept until they are evicted so callers can still fall back to
+ * the last known value with {@link #getStale(Object)}.
+ */
+public class TtlCache<K, V> {
+
+    private final String name;
+    private final long ttlMillis;
+    private final int maxSize;
+
+    // access-ordered, guarded by "this"
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TtlCache(String name, long ttlMillis, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value for the key, or loads it with the given loader on a miss.
+     * Only one loader runs per key at a time; concurrent callers share its result.
+     * Null results are returned but never cached.
+     */
+    public V get(K key, Supplier<V> loader) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished loading between our lookup and registration
+            cached = getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                load.complete(cached);
+                return cached;
+            }
+
+            misses.increment();
+            V value = loader.get();
+            if (value != null) {
+                put(key, value);
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Bulk variant of {@link #get(Object, Supplier)}. Keys that are cached are served locally,
+     * keys already being loaded by another caller are awaited, and all remaining keys are handed
+     * to the loader in a single call. Keys the loader returns no value for are left out of the result.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> loader) {
+        Map<K, V> found = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> waiting = new LinkedHashMap<>();
+
+        for (K key : keys) {
+            if (found.containsKey(key) || owned.containsKey(key) || waiting.containsKey(key)) {
+                continue;
+            }
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                found.put(key, cached);
+                continue;
+            }
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+            if (existing != null) {
+                coalesced.increment();
+                waiting.put(key, existing);
+            } else {
+                misses.increment();
+                owned.put(key, load);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            try {
+                Map<K, V> loaded = loader.apply(new ArrayList<>(owned.keySet()));
+                owned.forEach((key, load) -> {
+                    V value = loaded != null ? loaded.get(key) : null;
+                    if (value != null) {
+                        put(key, value);
+                        found.put(key, value);
+                    }
+                    load.complete(value);
+                });
+            } catch (RuntimeException e) {
+                owned.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+
+        waiting.forEach((key, future) -> {
+            try {
+                V value = await(future);
+                if (value != null) {
+                    found.put(key, value);
+                }
+            } catch (RuntimeException e) {
+                // The other caller's load failed; leave this key out rather than failing the batch
+            }
+        });
+
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value if it is present and not expired, without touching the statistics.
+     */
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Returns the last loaded value for the key even if it has expired.
+     */
+    public synchronized V getStale(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return CacheStats.builder()
+                .name(name)
+                .size(size())
+                .maxSize(maxSize)
+                .ttlMillis(ttlMillis)
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .coalesced(coalesced.sum())
+                .evictions(evictions.sum())
+                .build();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.backend.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking HTTP client for the market-data providers. A single {@link HttpClient} is shared
+ * so connections are pooled and reused, every request has a connect and read timeout, and
+ * responses are parsed off the calling thread so callers can compose them asynchronously.
+ * Every request is routed through the {@link UpstreamScheduler} so it counts against the
+ * provider's quota.
+ * <p>
+ * Continuations run on the {@code marketDataExecutor} with the caller's security context, so
+ * code downstream of a call can still use {@link SecurityContextHolder} to find the current user.
+ */
+@Component
+public class MarketDataClient {
+    private static final Logger log = LoggerFactory.getLogger(MarketDataClient.class);
+    // Quota replies are a single short message; anything larger is real data
+    private static final int MAX_THROTTLE_REPLY_BYTES = 1024;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
+    private final Executor executor;
+    private final UpstreamScheduler scheduler;
+
+    public MarketDataClient(
+            ObjectMapper objectMapper,
+            UpstreamScheduler scheduler,
+            @Qualifier("marketDataExecutor") AsyncTaskExecutor executor,
+            @Value("${marketdata.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${marketdata.http.read-timeout-ms:10000}") long readTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public CompletableFuture<Object> getAsync(Provider provider, UpstreamPriority priority, String url) {
+        return getAsync(provider, priority, url, Object.class);
+    }
+
+    public <T> CompletableFuture<T> getAsync(Provider provider, UpstreamPriority priority, String url, Class<T> type) {
+        return getAsync(provider, priority, url, (ResponseParser<T>) parser -> objectMapper.readValue(parser, type));
+    }
+
+    public <T> CompletableFuture<T> getAsync(Provider provider, UpstreamPriority priority, String url,
+                                             ResponseParser<T> responseParser) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        Executor callerContext = new DelegatingSecurityContextExecutor(executor, SecurityContextHolder.getContext());
+        return scheduler.submit(provider, priority, () -> httpClient
+                .sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApplyAsync(response -> parse(provider, response, responseParser), callerContext));
+    }
+
+    /**
+     * Blocking convenience for callers that need the result on the current thread.
+     */
+    public <T> T get(Provider provider, UpstreamPriority priority, String url, Class<T> type) {
+        return get(provider, priority, url, (ResponseParser<T>) parser -> objectMapper.readValue(parser, type));
+    }
+
+    public <T> T get(Provider provider, UpstreamPriority priority, String url, ResponseParser<T> responseParser) {
+        try {
+            return getAsync(provider, priority, url, responseParser).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Market data request failed", e.getCause());
+        }
+    }
+
+    private <T> T parse(Provider provider, HttpResponse<byte[]> response, ResponseParser<T> responseParser) {
+        if (response.statusCode() >= 400) {
+            log.warn("Market data request to {} returned HTTP {}", response.uri().getHost(), response.statusCode());
+            throw new RuntimeException("Market data provider returned HTTP " + response.statusCode());
+        }
+        byte[] body = response.body();
+        try {
+            if (body.length <= MAX_THROTTLE_REPLY_BYTES && isThrottleReply(provider, body)) {
+                throw new UpstreamThrottledException(provider + " request quota exceeded");
+            }
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                parser.nextToken();
+                return responseParser.parse(parser);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Invalid response from market data provider", e);
+        }
+    }
+
+    private boolean isThrottleReply(Provider provider, byte[] body) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (provider.isThrottleField(field, value.isScalarValue() ? parser.getText() : null)) {
+                    return true;
+                }
+                parser.skipChildren();
+            }
+        }
+        return false;
+    }
+}
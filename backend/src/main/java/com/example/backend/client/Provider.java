@@ -0,0 +1,21 @@
+package com.example.backend.client;
+
+/**
+ * Upstream market-data providers, each with its own request budget.
+ */
+public enum Provider {
+    TWELVE_DATA,
+    ALPHA_VANTAGE;
+
+    /**
+     * Returns true if a top-level field of a response body marks it as the provider's "quota
+     * exceeded" reply. Both providers answer over-budget requests with HTTP 200 and a short
+     * explanatory body instead of data.
+     */
+    public boolean isThrottleField(String field, String value) {
+        return switch (this) {
+            case TWELVE_DATA -> "code".equals(field) && "429".equals(value);
+            case ALPHA_VANTAGE -> "Note".equals(field) || "Information".equals(field);
+        };
+    }
+}
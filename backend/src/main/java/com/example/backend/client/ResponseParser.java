@@ -0,0 +1,13 @@
+package com.example.backend.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads a provider response straight from the JSON token stream.
+ */
+@FunctionalInterface
+public interface ResponseParser<T> {
+    T parse(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.example.backend.client;
+
+/**
+ * Scheduling priority of an upstream request, highest first.
+ */
+public enum UpstreamPriority {
+    QUOTE,
+    FUNDAMENTALS,
+    NEWS,
+    BACKGROUND
+}
@@ -0,0 +1,255 @@
+package com.example.backend.client;
+
+import com.example.backend.dto.UpstreamStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Central gate for all upstream market-data requests. Each provider has a token bucket sized to
+ * its per-minute quota and a priority queue of pending requests; requests are dispatched in
+ * priority order as tokens become available. Requests that wait longer than
+ * {@code marketdata.scheduler.max-wait-ms}, or that do not fit in the queue, are shed with an
+ * {@link UpstreamThrottledException} so callers can fall back to cached data.
+ */
+@Component
+public class UpstreamScheduler {
+    private static final Logger log = LoggerFactory.getLogger(UpstreamScheduler.class);
+
+    private static final Comparator<Task<?>> ORDER = Comparator
+            .<Task<?>, Integer>comparing(task -> task.priority.ordinal())
+            .thenComparingLong(task -> task.sequence);
+
+    private final Map<Provider, ProviderQueue> queues = new EnumMap<>(Provider.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private final int maxQueueDepth;
+    private final long maxWaitMillis;
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "upstream-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UpstreamScheduler(
+            @Value("${marketdata.twelvedata.requests-per-minute:8}") int twelveDataRequestsPerMinute,
+            @Value("${marketdata.alphavantage.requests-per-minute:5}") int alphaVantageRequestsPerMinute,
+            @Value("${marketdata.scheduler.max-queue-depth:100}") int maxQueueDepth,
+            @Value("${marketdata.scheduler.max-wait-ms:5000}") long maxWaitMillis) {
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitMillis = maxWaitMillis;
+        queues.put(Provider.TWELVE_DATA, new ProviderQueue(Provider.TWELVE_DATA, twelveDataRequestsPerMinute));
+        queues.put(Provider.ALPHA_VANTAGE, new ProviderQueue(Provider.ALPHA_VANTAGE, alphaVantageRequestsPerMinute));
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.scheduleWithFixedDelay(this::drainAll, 100, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Queues an upstream call and returns its eventual result. The call is only started once the
+     * provider has budget for it; a provider "quota exceeded" reply completes the result with
+     * {@link UpstreamThrottledException} and pauses the provider until its bucket refills.
+     */
+    public <T> CompletableFuture<T> submit(Provider provider, UpstreamPriority priority,
+                                           Supplier<CompletableFuture<T>> call) {
+        ProviderQueue queue = queues.get(provider);
+        Task<T> task = new Task<>(queue, priority, sequence.incrementAndGet(), call);
+
+        Task<?> shed = null;
+        synchronized (queue) {
+            if (queue.pending.size() >= maxQueueDepth) {
+                // Make room by dropping the lowest-priority, newest request if it ranks below this one
+                Task<?> worst = queue.pending.stream().max(ORDER).orElse(null);
+                if (worst == null || ORDER.compare(worst, task) < 0) {
+                    shed = task;
+                } else {
+                    queue.pending.remove(worst);
+                    shed = worst;
+                }
+            }
+            if (shed != task) {
+                queue.pending.add(task);
+            }
+        }
+        if (shed != null) {
+            queue.shed.increment();
+            shed.result.completeExceptionally(
+                    new UpstreamThrottledException(provider + " request queue is full"));
+        }
+
+        drain(queue);
+        return task.result;
+    }
+
+    public List<UpstreamStats> getStats() {
+        List<UpstreamStats> stats = new ArrayList<>();
+        for (ProviderQueue queue : queues.values()) {
+            Map<String, Integer> depthByPriority = new LinkedHashMap<>();
+            for (UpstreamPriority priority : UpstreamPriority.values()) {
+                depthByPriority.put(priority.name(), 0);
+            }
+            double tokens;
+            int depth;
+            synchronized (queue) {
+                queue.refill(System.currentTimeMillis());
+                tokens = queue.tokens;
+                depth = queue.pending.size();
+                queue.pending.forEach(task -> depthByPriority.merge(task.priority.name(), 1, Integer::sum));
+            }
+            long dispatched = queue.dispatched.sum();
+            stats.add(UpstreamStats.builder()
+                    .provider(queue.provider.name())
+                    .requestsPerMinute(queue.requestsPerMinute)
+                    .tokensAvailable(tokens)
+                    .queueDepth(depth)
+                    .queueDepthByPriority(depthByPriority)
+                    .dispatched(dispatched)
+                    .shed(queue.shed.sum())
+                    .throttledResponses(queue.throttledResponses.sum())
+                    .averageWaitMillis(dispatched == 0 ? 0 : (double) queue.totalWaitMillis.sum() / dispatched)
+                    .maxWaitMillis(queue.maxWaitMillis.get())
+                    .build());
+        }
+        return stats;
+    }
+
+    private void drainAll() {
+        try {
+            queues.values().forEach(this::drain);
+        } catch (Exception e) {
+            log.error("Error draining upstream queues: ", e);
+        }
+    }
+
+    private void drain(ProviderQueue queue) {
+        List<Task<?>> ready = new ArrayList<>();
+        List<Task<?>> expired = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        synchronized (queue) {
+            queue.pending.removeIf(task -> {
+                if (now - task.enqueuedAt > maxWaitMillis) {
+                    expired.add(task);
+                    return true;
+                }
+                return false;
+            });
+            queue.refill(now);
+            while (queue.tokens >= 1 && !queue.pending.isEmpty()) {
+                queue.tokens -= 1;
+                ready.add(queue.pending.poll());
+            }
+        }
+
+        for (Task<?> task : expired) {
+            queue.shed.increment();
+            task.result.completeExceptionally(new UpstreamThrottledException(
+                    queue.provider + " request waited longer than " + maxWaitMillis + "ms"));
+        }
+        for (Task<?> task : ready) {
+            long waited = now - task.enqueuedAt;
+            queue.dispatched.increment();
+            queue.totalWaitMillis.add(waited);
+            queue.maxWaitMillis.accumulateAndGet(waited, Math::max);
+            task.start();
+        }
+    }
+
+    private static final class ProviderQueue {
+        private final Provider provider;
+        private final int requestsPerMinute;
+        private final double tokensPerMilli;
+        private final PriorityQueue<Task<?>> pending = new PriorityQueue<>(ORDER);
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        private final LongAdder dispatched = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder throttledResponses = new LongAdder();
+        private final LongAdder totalWaitMillis = new LongAdder();
+        private final AtomicLong maxWaitMillis = new AtomicLong();
+
+        private ProviderQueue(Provider provider, int requestsPerMinute) {
+            this.provider = provider;
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMilli = requestsPerMinute / 60_000.0;
+            this.tokens = requestsPerMinute;
+        }
+
+        // callers hold the queue lock
+        private void refill(long now) {
+            tokens = Math.min(requestsPerMinute, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+        }
+
+        private synchronized void exhaust() {
+            tokens = 0;
+            lastRefill = System.currentTimeMillis();
+        }
+    }
+
+    private static final class Task<T> {
+        private final ProviderQueue queue;
+        private final UpstreamPriority priority;
+        private final long sequence;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(ProviderQueue queue, UpstreamPriority priority, long sequence, Supplier<CompletableFuture<T>> call) {
+            this.queue = queue;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.call = call;
+        }
+
+        private void start() {
+            CompletableFuture<T> response;
+            try {
+                response = call.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            response.whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof UpstreamThrottledException) {
+                    log.warn("{} reported its request quota as exceeded", queue.provider);
+                    queue.throttledResponses.increment();
+                    queue.exhaust();
+                }
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.backend.client;
+
+/**
+ * Thrown when an upstream request is shed because the provider's budget is exhausted, either
+ * locally before it was sent or because the provider itself reported the quota as exceeded.
+ */
+public class UpstreamThrottledException extends RuntimeException {
+    public UpstreamThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Executors for outbound market-data calls and MVC async request processing.
+ * <p>
+ * With {@code spring.threads.virtual.enabled=true} on Java 21+, Spring Boot runs Tomcat request
+ * handling on virtual threads and this configuration does the same for market-data work, so
+ * requests blocked on remote HTTP or JDBC no longer tie up a platform thread. On older runtimes
+ * the setting is ignored and a bounded platform-thread pool is used instead.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    private final AsyncTaskExecutor marketDataExecutor;
+
+    public AsyncConfig(@Qualifier("marketDataExecutor") AsyncTaskExecutor marketDataExecutor) {
+        this.marketDataExecutor = marketDataExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(marketDataExecutor);
+    }
+
+    @Configuration
+    static class Executors {
+
+        @Bean
+        public AsyncTaskExecutor marketDataExecutor(
+                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                @Value("${marketdata.executor.pool-size:32}") int poolSize) {
+            if (virtualThreads) {
+                if (Runtime.version().feature() >= 21) {
+                    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("market-data-");
+                    executor.setVirtualThreads(true);
+                    log.info("Using virtual threads for market data calls");
+                    return executor;
+                }
+                log.warn("Virtual threads requested but running on Java {}; using a platform thread pool",
+                        Runtime.version().feature());
+            }
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadNamePrefix("market-data-");
+            executor.setCorePoolSize(poolSize);
+            executor.setMaxPoolSize(poolSize);
+            executor.setQueueCapacity(Integer.MAX_VALUE);
+            executor.setAllowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
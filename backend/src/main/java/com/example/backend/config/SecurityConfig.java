@@ -1,5 +1,6 @@
 package com.example.backend.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -30,6 +31,8 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
+                // Async results are dispatched back through the chain after the original request was authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/stocks/top-movers").permitAll()
                 .requestMatchers("/api/stocks/news").permitAll()
@@ -45,6 +48,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/users/**").authenticated()
                 .requestMatchers("/api/holdings/**").authenticated()
                 .requestMatchers("/api/transactions/**").authenticated()
+                .requestMatchers("/api/orders/**").authenticated()
+                .requestMatchers("/api/export/admin/**").hasAuthority("ROLE_ADMIN")
+                .requestMatchers("/api/export/**").authenticated()
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
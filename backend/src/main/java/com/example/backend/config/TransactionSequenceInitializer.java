@@ -0,0 +1,36 @@
+package com.example.backend.config;
+
+import com.example.backend.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves {@code transaction_seq} past the highest existing transaction id. Transactions used to be
+ * keyed by an identity column, so on an existing database the new sequence starts below ids that
+ * are already taken.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionSequenceInitializer {
+    private static final Logger log = LoggerFactory.getLogger(TransactionSequenceInitializer.class);
+    // must match the allocationSize of the Transaction id generator
+    private static final long ALLOCATION_SIZE = 50;
+
+    private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequence() {
+        long maxId = transactionRepository.findMaxId();
+        Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR transaction_seq", Long.class);
+        if (next != null && next - ALLOCATION_SIZE < maxId) {
+            long restart = maxId + ALLOCATION_SIZE + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE transaction_seq RESTART WITH " + restart);
+            log.info("Moved transaction_seq to {} past existing transaction id {}", restart, maxId);
+        }
+    }
+}
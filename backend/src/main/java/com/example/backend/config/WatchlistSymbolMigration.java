@@ -0,0 +1,63 @@
+package com.example.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies watchlist symbols from the old {@code watch_list_stock_symbols} element-collection table
+ * into {@code watch_list_symbol} rows, then drops the old table. Symbols keep their stored order
+ * and are upper-cased; duplicates within a watchlist are dropped to fit the unique index.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistSymbolMigration {
+    private static final Logger log = LoggerFactory.getLogger(WatchlistSymbolMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        Integer legacy = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = 'WATCH_LIST_STOCK_SYMBOLS'",
+                Integer.class);
+        if (legacy == null || legacy == 0) {
+            return;
+        }
+        int copied = transactionTemplate.execute(status -> {
+            Map<Long, Long> positions = new HashMap<>();
+            Set<String> seen = new HashSet<>();
+            List<Object[]> rows = new ArrayList<>();
+            // the collection had no order column; Hibernate rewrote it in list order, so H2's row id is that order
+            jdbcTemplate.query("SELECT watch_list_id, stock_symbols FROM watch_list_stock_symbols ORDER BY watch_list_id, _ROWID_", rs -> {
+                long watchListId = rs.getLong(1);
+                String symbol = rs.getString(2);
+                if (symbol == null || symbol.isBlank()) {
+                    return;
+                }
+                symbol = symbol.trim().toUpperCase();
+                if (seen.add(watchListId + "|" + symbol)) {
+                    long position = positions.merge(watchListId, 1L, Long::sum);
+                    rows.add(new Object[]{watchListId, symbol, position});
+                }
+            });
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO watch_list_symbol (watch_list_id, symbol, position) VALUES (?, ?, ?)", rows);
+            jdbcTemplate.execute("DROP TABLE watch_list_stock_symbols");
+            return rows.size();
+        });
+        log.info("Migrated {} watchlist symbols to watch_list_symbol", copied);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.TransactionFilter;
+import com.example.backend.model.User;
+import com.example.backend.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * Streaming exports for tax reports. {@code /api/export/...} exports the current user's data;
+ * {@code /api/export/admin/...} exports any or all users and requires ROLE_ADMIN.
+ */
+@RestController
+@RequestMapping("/api/export")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "https://stock-portfolio-frontend.onrender.com"})
+public class ExportController {
+    private final ExportService exportService;
+
+    @GetMapping("/transactions")
+    public ResponseEntity<?> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return exportTransactions(getCurrentUser().getId(), format, from, to);
+    }
+
+    @GetMapping("/holdings")
+    public ResponseEntity<?> exportHoldings(@RequestParam(defaultValue = "csv") String format) {
+        return exportHoldings(getCurrentUser().getId(), format);
+    }
+
+    @GetMapping("/admin/transactions")
+    public ResponseEntity<?> exportAllTransactions(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return exportTransactions(userId, format, from, to);
+    }
+
+    @GetMapping("/admin/holdings")
+    public ResponseEntity<?> exportAllHoldings(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "csv") String format) {
+        return exportHoldings(userId, format);
+    }
+
+    private ResponseEntity<?> exportTransactions(Long userId, String format, LocalDateTime from, LocalDateTime to) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.parse(format);
+            TransactionFilter filter = TransactionFilter.builder().from(from).to(to).build();
+            return attachment("transactions", exportFormat,
+                    exportService.exportTransactions(userId, filter, exportFormat));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> exportHoldings(Long userId, String format) {
+        try {
+            ExportService.Format exportFormat = ExportService.Format.parse(format);
+            return attachment("holdings", exportFormat, exportService.exportHoldings(userId, exportFormat));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String name, ExportService.Format format,
+                                                             StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    private User getCurrentUser() {
+        return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+}
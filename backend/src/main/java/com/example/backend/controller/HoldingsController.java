@@ -1,16 +1,22 @@
 package com.example.backend.controller;
 
 import com.example.backend.model.Holdings;
+import com.example.backend.model.PortfolioSnapshot;
+import com.example.backend.model.PositionSnapshot;
 import com.example.backend.model.User;
 import com.example.backend.service.HoldingsService;
 import com.example.backend.service.UserService;
+import com.example.backend.valuation.PortfolioValuationService;
+import com.example.backend.valuation.SnapshotService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -20,6 +26,8 @@ import java.util.List;
 public class HoldingsController {
     private final HoldingsService holdingsService;
     private final UserService userService;
+    private final PortfolioValuationService portfolioValuationService;
+    private final SnapshotService snapshotService;
     private static final Logger log = LoggerFactory.getLogger(HoldingsController.class);
 
     @GetMapping
@@ -36,6 +44,51 @@ public class HoldingsController {
         return ResponseEntity.ok(holdings);
     }
 
+    /**
+     * Returns the current user's live portfolio valuation with per-position and total P&L.
+     */
+    @GetMapping("/valuation")
+    public ResponseEntity<?> getValuation() {
+        try {
+            User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            return ResponseEntity.ok(portfolioValuationService.getValuation(currentUser.getId()));
+        } catch (Exception e) {
+            log.error("Error loading portfolio valuation: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the current user's daily portfolio snapshots, oldest first; defaults to the last year.
+     */
+    @GetMapping("/snapshots")
+    public ResponseEntity<List<PortfolioSnapshot>> getSnapshots(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1);
+        return ResponseEntity.ok(snapshotService.getSnapshots(currentUser.getId(), start, end));
+    }
+
+    @GetMapping("/snapshots/{date}/positions")
+    public ResponseEntity<List<PositionSnapshot>> getPositionSnapshots(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return ResponseEntity.ok(snapshotService.getPositionSnapshots(currentUser.getId(), date));
+    }
+
+    @PostMapping("/snapshots")
+    public ResponseEntity<?> takeSnapshot() {
+        try {
+            User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            return ResponseEntity.ok(snapshotService.snapshotUser(currentUser.getId()));
+        } catch (Exception e) {
+            log.error("Error taking portfolio snapshot: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/shared/{userId}")
     public ResponseEntity<?> getSharedHoldings(@PathVariable Long userId) {
         try {
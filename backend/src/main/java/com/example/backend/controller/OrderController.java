@@ -0,0 +1,47 @@
+package com.example.backend.controller;
+
+import com.example.backend.dto.RestingOrderRequest;
+import com.example.backend.model.RestingOrder;
+import com.example.backend.model.User;
+import com.example.backend.trading.OrderBookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "https://stock-portfolio-frontend.onrender.com"})
+public class OrderController {
+    private final OrderBookService orderBookService;
+
+    @PostMapping
+    public ResponseEntity<?> placeOrder(@RequestBody RestingOrderRequest request) {
+        try {
+            return ResponseEntity.ok(orderBookService.placeOrder(getCurrentUser(), request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RestingOrder>> getOrders() {
+        return ResponseEntity.ok(orderBookService.getOrders(getCurrentUser()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancelOrder(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(orderBookService.cancelOrder(getCurrentUser(), id));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private User getCurrentUser() {
+        return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.backend.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.example.backend.client.UpstreamThrottledException;
+import com.example.backend.dto.CacheStats;
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.SymbolSearchResult;
+import com.example.backend.dto.UpstreamStats;
+import com.example.backend.service.QuoteStreamService;
 import com.example.backend.service.StockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.Map;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.web.client.RestTemplate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/stocks")
@@ -16,17 +23,15 @@ import org.springframework.web.client.RestTemplate;
 @CrossOrigin(origins = "http://localhost:3000")
 public class StockController {
     private final StockService stockService;
+    private final QuoteStreamService quoteStreamService;
     private static final Logger log = LoggerFactory.getLogger(StockController.class);
-    private final RestTemplate restTemplate = new RestTemplate();
-    
-    @Value("${alphavantage.api.key}")
-    private String apiKey;
+    private static final int MAX_BATCH_SYMBOLS = 500;
 
     @GetMapping("/search")
-    public ResponseEntity<Map<String, Object>> searchStocks(@RequestParam String symbol) {
+    public ResponseEntity<SymbolSearchResult> searchStocks(@RequestParam String symbol) {
         try {
             log.info("Searching for symbol: {}", symbol);
-            Map<String, Object> result = stockService.searchStocks(symbol);
+            SymbolSearchResult result = stockService.searchStocks(symbol);
             log.info("Search results: {}", result);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
@@ -36,86 +41,135 @@ public class StockController {
     }
 
     @GetMapping("/{symbol}/data")
-    public ResponseEntity<Object> getStockData(
+    public ResponseEntity<?> getStockData(
             @PathVariable String symbol,
             @RequestParam(defaultValue = "1h") String interval) {
-        return ResponseEntity.ok(stockService.getStockData(symbol, interval));
+        try {
+            return ResponseEntity.ok(stockService.getStockData(symbol, interval));
+        } catch (Exception e) {
+            log.error("Error fetching bars for {}: {}", symbol, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/{symbol}/quote")
-    public ResponseEntity<Object> getQuote(@PathVariable String symbol) {
-        return ResponseEntity.ok(stockService.getQuote(symbol));
+    public ResponseEntity<Quote> getQuote(@PathVariable String symbol) {
+        Quote quote = stockService.getQuote(symbol);
+        if (quote == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(quote);
     }
 
-    @GetMapping("/top-movers")
-    public ResponseEntity<Object> getTopMovers() {
+    @GetMapping("/quotes")
+    public ResponseEntity<?> getQuotes(@RequestParam List<String> symbols) {
+        if (symbols.size() > MAX_BATCH_SYMBOLS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_BATCH_SYMBOLS + " symbols per request");
+        }
         try {
-            log.info("Fetching top movers");
-            String url = String.format("https://www.alphavantage.co/query?function=TOP_GAINERS_LOSERS&apikey=%s", apiKey);
-            Object result = restTemplate.getForObject(url, Object.class);
-            log.info("Successfully fetched top movers");
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok(stockService.getQuotesOrStale(symbols));
         } catch (Exception e) {
-            log.error("Error fetching top movers: ", e);
+            log.error("Error fetching quotes: ", e);
             return ResponseEntity.badRequest().build();
         }
     }
 
-    @GetMapping("/{symbol}/fundamentals")
-    public ResponseEntity<Object> getFundamentals(@PathVariable String symbol) {
-        try {
-            log.info("Fetching fundamentals for symbol: {}", symbol);
-            String url = String.format("https://www.alphavantage.co/query?function=OVERVIEW&symbol=%s&apikey=%s", symbol, apiKey);
-            Object result = restTemplate.getForObject(url, Object.class);
-            log.info("Successfully fetched fundamentals for {}", symbol);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Error fetching fundamentals: ", e);
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQuotes(@RequestParam List<String> symbols) {
+        if (symbols.size() > MAX_BATCH_SYMBOLS) {
             return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok(quoteStreamService.subscribe(symbols));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheStats>> getCacheStats() {
+        return ResponseEntity.ok(stockService.getCacheStats());
+    }
+
+    @GetMapping("/upstream/stats")
+    public ResponseEntity<List<UpstreamStats>> getUpstreamStats() {
+        return ResponseEntity.ok(stockService.getUpstreamStats());
+    }
+
+    @GetMapping("/top-movers")
+    public CompletableFuture<ResponseEntity<Object>> getTopMovers() {
+        log.info("Fetching top movers");
+        return stockService.getTopMovers()
+                .thenApply(result -> {
+                    log.info("Successfully fetched top movers");
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    if (isThrottled(e)) {
+                        log.warn("Alpha Vantage budget exhausted for top movers: {}", e.getMessage());
+                        return ResponseEntity.status(429).build();
+                    }
+                    log.error("Error fetching top movers: ", e);
+                    return ResponseEntity.badRequest().build();
+                });
+    }
+
+    @GetMapping("/{symbol}/fundamentals")
+    public CompletableFuture<ResponseEntity<Object>> getFundamentals(@PathVariable String symbol) {
+        log.info("Fetching fundamentals for symbol: {}", symbol);
+        return stockService.getFundamentals(symbol)
+                .thenApply(result -> {
+                    log.info("Successfully fetched fundamentals for {}", symbol);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    if (isThrottled(e)) {
+                        log.warn("Alpha Vantage budget exhausted for fundamentals: {}", e.getMessage());
+                        return ResponseEntity.status(429).build();
+                    }
+                    log.error("Error fetching fundamentals: ", e);
+                    return ResponseEntity.badRequest().build();
+                });
     }
 
     @GetMapping("/{symbol}/financials")
-    public ResponseEntity<Object> getFinancials(@PathVariable String symbol) {
-        try {
-            log.info("Fetching financials for symbol: {}", symbol);
-            String url = String.format("https://www.alphavantage.co/query?function=CASH_FLOW&symbol=%s&apikey=%s", symbol, apiKey);
-            Object result = restTemplate.getForObject(url, Object.class);
-            log.info("Successfully fetched financials for {}", symbol);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            log.error("Error fetching financials: ", e);
-            return ResponseEntity.badRequest().build();
-        }
+    public CompletableFuture<ResponseEntity<Object>> getFinancials(@PathVariable String symbol) {
+        log.info("Fetching financials for symbol: {}", symbol);
+        return stockService.getFinancials(symbol)
+                .thenApply(result -> {
+                    log.info("Successfully fetched financials for {}", symbol);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    if (isThrottled(e)) {
+                        log.warn("Alpha Vantage budget exhausted for financials: {}", e.getMessage());
+                        return ResponseEntity.status(429).build();
+                    }
+                    log.error("Error fetching financials: ", e);
+                    return ResponseEntity.badRequest().build();
+                });
     }
 
     @GetMapping("/news")
-    public ResponseEntity<Object> getMarketNews() {
-        try {
-            log.info("Fetching market news from Alpha Vantage");
-            String url = String.format("https://www.alphavantage.co/query?function=NEWS_SENTIMENT&apikey=%s", apiKey);
-            
-            log.info("Making request to URL: {}", url);
-            Object result = restTemplate.getForObject(url, Object.class);
-            
-            if (result != null) {
-                log.info("Received response from Alpha Vantage: {}", result);
-                
-                // Check if we got a rate limit error
-                if (result instanceof Map && ((Map<?, ?>) result).containsKey("Note")) {
-                    String errorMessage = ((Map<?, ?>) result).get("Note").toString();
-                    log.warn("Alpha Vantage API limit reached: {}", errorMessage);
-                    return ResponseEntity.status(429).body(errorMessage);
-                }
-                
-                return ResponseEntity.ok(result);
-            } else {
-                log.warn("Received null response from Alpha Vantage");
-                return ResponseEntity.badRequest().body("No data received from Alpha Vantage");
-            }
-        } catch (Exception e) {
-            log.error("Error fetching market news: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body("Error fetching market news: " + e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<Object>> getMarketNews() {
+        log.info("Fetching market news from Alpha Vantage");
+        return stockService.getMarketNews()
+                .thenApply(result -> {
+                    if (result == null) {
+                        log.warn("Received null response from Alpha Vantage");
+                        return ResponseEntity.badRequest().<Object>body("No data received from Alpha Vantage");
+                    }
+                    log.info("Received response from Alpha Vantage: {}", result);
+                    return ResponseEntity.ok(result);
+                })
+                .exceptionally(e -> {
+                    // Rate limit replies are turned into UpstreamThrottledException by the upstream scheduler
+                    if (isThrottled(e)) {
+                        log.warn("Alpha Vantage API limit reached: {}", e.getMessage());
+                        return ResponseEntity.status(429).body("Alpha Vantage API limit reached, please try again later");
+                    }
+                    log.error("Error fetching market news: {}", e.getMessage(), e);
+                    return ResponseEntity.badRequest().body("Error fetching market news: " + e.getMessage());
+                });
+    }
+
+    private static boolean isThrottled(Throwable e) {
+        return e instanceof UpstreamThrottledException || e.getCause() instanceof UpstreamThrottledException;
     }
-} 
\ No newline at end of file
+}
@@ -1,11 +1,18 @@
 package com.example.backend.controller;
 
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.dto.TradingStats;
+import com.example.backend.dto.TransactionFilter;
 import com.example.backend.model.Transaction;
 import com.example.backend.service.TransactionService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +28,7 @@ public class TransactionController {
         try {
             String symbol = (String) request.get("symbol");
             double quantity = Double.parseDouble(request.get("quantity").toString());
-            double price = Double.parseDouble(request.get("price").toString());
+            Double price = request.get("price") == null ? null : Double.parseDouble(request.get("price").toString());
             
             Transaction transaction = transactionService.buyStock(symbol, quantity, price);
             return ResponseEntity.ok(transaction);
@@ -35,7 +42,7 @@ public class TransactionController {
         try {
             String symbol = (String) request.get("symbol");
             double quantity = Double.parseDouble(request.get("quantity").toString());
-            double price = Double.parseDouble(request.get("price").toString());
+            Double price = request.get("price") == null ? null : Double.parseDouble(request.get("price").toString());
             
             Transaction transaction = transactionService.sellStock(symbol, quantity, price);
             return ResponseEntity.ok(transaction);
@@ -44,8 +51,45 @@ public class TransactionController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> executeBatch(@RequestBody List<OrderRequest> orders) {
+        try {
+            return ResponseEntity.ok(transactionService.executeBatch(orders));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping
-    public ResponseEntity<List<Transaction>> getUserTransactions() {
-        return ResponseEntity.ok(transactionService.getUserTransactions());
+    public ResponseEntity<StreamingResponseBody> getUserTransactions() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(transactionService.streamUserTransactions());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> getTransactionPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String symbol,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            TransactionFilter filter = TransactionFilter.builder()
+                    .symbol(symbol)
+                    .type(type)
+                    .from(from)
+                    .to(to)
+                    .build();
+            return ResponseEntity.ok(transactionService.getTransactionPage(cursor, limit, filter));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<TradingStats> getTradingStats() {
+        return ResponseEntity.ok(transactionService.getTradingStats());
     }
 } 
\ No newline at end of file
@@ -1,13 +1,18 @@
 package com.example.backend.controller;
 
+import com.example.backend.dto.WatchlistChange;
+import com.example.backend.dto.WatchlistView;
 import com.example.backend.model.WatchList;
+import com.example.backend.service.QuoteStreamService;
 import com.example.backend.service.WatchlistService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -17,6 +22,7 @@ import java.util.List;
 @CrossOrigin(origins = "http://localhost:3000")
 public class WatchlistController {
     private final WatchlistService watchlistService;
+    private final QuoteStreamService quoteStreamService;
     private static final Logger log = LoggerFactory.getLogger(WatchlistController.class);
 
     @GetMapping
@@ -39,6 +45,32 @@ public class WatchlistController {
         }
     }
 
+    @GetMapping("/{id}/view")
+    public ResponseEntity<?> getWatchlistView(@PathVariable Long id) {
+        try {
+            WatchlistView view = watchlistService.getWatchlistView(id);
+            log.info("Fetched view of watchlist {} with {} quotes (complete: {})", id, view.getQuotes().size(), view.isComplete());
+            return ResponseEntity.ok(view);
+        } catch (Exception e) {
+            log.error("Error fetching watchlist view: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body("Error accessing watchlist: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamWatchlistQuotes(@PathVariable Long id) {
+        try {
+            WatchList watchlist = watchlistService.getWatchlistById(id);
+            SseEmitter emitter = quoteStreamService.subscribeToWatchlist(id, watchlist.getStockSymbols());
+            log.info("Opened quote stream for watchlist {}", id);
+            return ResponseEntity.ok(emitter);
+        } catch (Exception e) {
+            log.error("Error opening watchlist stream: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<WatchList> createWatchlist(@RequestBody WatchList watchlist) {
         WatchList created = watchlistService.createWatchlist(watchlist);
@@ -47,17 +79,63 @@ public class WatchlistController {
     }
 
     @PostMapping("/{id}/stocks/{symbol}")
-    public ResponseEntity<WatchList> addStock(@PathVariable Long id, @PathVariable String symbol) {
-        WatchList updated = watchlistService.addStockToWatchlist(id, symbol);
-        log.info("Added stock {} to watchlist {}", symbol, id);
-        return ResponseEntity.ok(updated);
+    public ResponseEntity<?> addStock(@PathVariable Long id, @PathVariable String symbol) {
+        try {
+            WatchlistChange change = watchlistService.addStockToWatchlist(id, symbol);
+            log.info("Added stock {} to watchlist {}", symbol, id);
+            return ResponseEntity.ok(change);
+        } catch (Exception e) {
+            log.error("Error adding stock to watchlist: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}/stocks/{symbol}")
-    public ResponseEntity<WatchList> removeStock(@PathVariable Long id, @PathVariable String symbol) {
-        WatchList updated = watchlistService.removeStockFromWatchlist(id, symbol);
-        log.info("Removed stock {} from watchlist {}", symbol, id);
-        return ResponseEntity.ok(updated);
+    public ResponseEntity<?> removeStock(@PathVariable Long id, @PathVariable String symbol) {
+        try {
+            WatchlistChange change = watchlistService.removeStockFromWatchlist(id, symbol);
+            log.info("Removed stock {} from watchlist {}", symbol, id);
+            return ResponseEntity.ok(change);
+        } catch (Exception e) {
+            log.error("Error removing stock from watchlist: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/stocks")
+    public ResponseEntity<?> addStocks(@PathVariable Long id, @RequestBody List<String> symbols) {
+        try {
+            WatchlistChange change = watchlistService.addStocks(id, symbols);
+            log.info("Added {} stocks to watchlist {}", change.getAdded().size(), id);
+            return ResponseEntity.ok(change);
+        } catch (Exception e) {
+            log.error("Error adding stocks to watchlist: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}/stocks")
+    public ResponseEntity<?> removeStocks(@PathVariable Long id, @RequestBody List<String> symbols) {
+        try {
+            WatchlistChange change = watchlistService.removeStocks(id, symbols);
+            log.info("Removed {} stocks from watchlist {}", change.getRemoved().size(), id);
+            return ResponseEntity.ok(change);
+        } catch (Exception e) {
+            log.error("Error removing stocks from watchlist: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}/stocks/order")
+    public ResponseEntity<?> reorderStocks(@PathVariable Long id, @RequestBody List<String> symbols) {
+        try {
+            List<String> ordered = watchlistService.reorderStocks(id, symbols);
+            log.info("Reordered {} stocks in watchlist {}", ordered.size(), id);
+            return ResponseEntity.ok(ordered);
+        } catch (Exception e) {
+            log.error("Error reordering watchlist: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,21 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStats {
+    private String name;
+    private int size;
+    private int maxSize;
+    private long ttlMillis;
+    private long hits;
+    private long misses;
+    private long coalesced;
+    private long evictions;
+}
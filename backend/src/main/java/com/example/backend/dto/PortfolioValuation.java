@@ -0,0 +1,24 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PortfolioValuation {
+    private double marketValue;
+    private double costBasis;
+    private double unrealizedPnl;
+    private double realizedPnl;
+    private double dayChange;
+    private double dayChangePercent;
+    private List<PositionValuation> positions;
+    private Instant updatedAt;
+}
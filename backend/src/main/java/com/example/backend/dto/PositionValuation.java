@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PositionValuation {
+    private String symbol;
+    private double quantity;
+    private double averagePrice;
+    private double lastPrice;
+    private double previousClose;
+    private double marketValue;
+    private double unrealizedPnl;
+    private double unrealizedPnlPercent;
+    private double dayChange;
+}
@@ -0,0 +1,37 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class Quote {
+    private String symbol;
+    private String name;
+    private String exchange;
+    private String currency;
+    private String datetime;
+    private long timestamp;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+    @JsonProperty("previous_close")
+    private double previousClose;
+    private double change;
+    @JsonProperty("percent_change")
+    private double percentChange;
+    @JsonProperty("average_volume")
+    private long averageVolume;
+    @JsonProperty("is_market_open")
+    private boolean marketOpen;
+    // when the quote was received from the provider (epoch millis), so a stale fallback can be told from a fresh one
+    @JsonProperty(value = "fetched_at", access = JsonProperty.Access.READ_ONLY)
+    private long fetchedAt;
+}
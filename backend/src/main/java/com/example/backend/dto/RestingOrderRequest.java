@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RestingOrderRequest {
+    private String symbol;
+    private String side; // BUY or SELL
+    private String type; // LIMIT or STOP
+    private double quantity;
+    private double price;
+}
@@ -0,0 +1,30 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SymbolMatch {
+    private String symbol;
+    // the symbol list endpoint calls these "name" and "type"
+    @JsonProperty("instrument_name")
+    @JsonAlias("name")
+    private String instrumentName;
+    private String exchange;
+    @JsonProperty("mic_code")
+    private String micCode;
+    @JsonProperty("exchange_timezone")
+    private String exchangeTimezone;
+    @JsonProperty("instrument_type")
+    @JsonAlias("type")
+    private String instrumentType;
+    private String country;
+    private String currency;
+}
@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TradingStats {
+    private String mode;
+    private String concurrency;
+    private long executed;
+    private long rejected;
+    private long optimisticRetries;
+    private long optimisticFailures;
+    private long lockAcquisitions;
+    private double averageLockWaitMillis;
+    private long maxLockWaitMillis;
+}
@@ -0,0 +1,23 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionExportRow {
+    private Long id;
+    private Long userId;
+    private LocalDateTime timestamp;
+    private String type;
+    private String stockSymbol;
+    private double quantity;
+    private double price;
+    private double total;
+}
@@ -0,0 +1,23 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional criteria for transaction history queries; null fields are not filtered on.
+ * {@code from} is inclusive and {@code to} is exclusive.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionFilter {
+    private String symbol;
+    private String type;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
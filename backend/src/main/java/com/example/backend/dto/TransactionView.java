@@ -0,0 +1,26 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction without its user, as listed in a user's history. Built directly by JPQL
+ * constructor queries so the user row is never joined or loaded.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionView {
+    private Long id;
+    private String stockSymbol;
+    private String type;
+    private double quantity;
+    private double price;
+    private double total;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,25 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UpstreamStats {
+    private String provider;
+    private int requestsPerMinute;
+    private double tokensAvailable;
+    private int queueDepth;
+    private Map<String, Integer> queueDepthByPriority;
+    private long dispatched;
+    private long shed;
+    private long throttledResponses;
+    private double averageWaitMillis;
+    private long maxWaitMillis;
+}
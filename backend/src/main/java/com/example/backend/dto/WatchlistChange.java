@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WatchlistChange {
+    private Long watchlistId;
+    // symbols that were actually added or removed; already present or absent ones are left out
+    private List<String> added;
+    private List<String> removed;
+}
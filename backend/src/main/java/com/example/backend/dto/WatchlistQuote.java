@@ -0,0 +1,18 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WatchlistQuote {
+    private String symbol;
+    // null when no quote has been seen yet for the symbol
+    private Quote quote;
+    // true when the quote is older than the quote cache TTL or missing because the fetch missed the deadline
+    private boolean stale;
+}
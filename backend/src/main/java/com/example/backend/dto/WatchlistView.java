@@ -0,0 +1,23 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WatchlistView {
+    private Long id;
+    private String name;
+    // in watchlist order
+    private List<WatchlistQuote> quotes;
+    // false when any quote is stale or missing; the client can poll again shortly
+    private boolean complete;
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,24 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class CachedMarketData {
+    @Id
+    private String cacheKey;
+
+    @Lob
+    private String payload;
+
+    private Instant fetchedAt;
+}
@@ -1,26 +0,0 @@
-package com.example.backend.model;
-
-import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-@Entity
-public class Holding {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-    
-    @ManyToOne
-    private User user;
-    
-    private String stockSymbol;
-    private int quantity;
-    private double averagePrice;
-    private double currentPrice;
-} 
\ No newline at end of file
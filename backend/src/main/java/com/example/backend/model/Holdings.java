@@ -1,25 +1,39 @@
 package com.example.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_holdings_user_symbol", columnList = "user_id, stock_symbol"))
 public class Holdings {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @ManyToOne
+    // lazy and never serialized; list queries project the columns they need instead
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
     
     private String stockSymbol;
     private double quantity;
     private double averagePrice;
+
+    // optimistic lock for concurrent balance/position updates; existing rows start at 0
+    @Version
+    @ColumnDefault("0")
+    private long version;
 } 
\ No newline at end of file
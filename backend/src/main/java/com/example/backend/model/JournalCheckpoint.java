@@ -0,0 +1,20 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class JournalCheckpoint {
+    @Id
+    private String name;
+
+    // sequence of the last journal record applied to the database
+    private long sequence;
+}
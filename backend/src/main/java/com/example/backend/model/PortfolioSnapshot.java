@@ -0,0 +1,39 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+
+/**
+ * A user's portfolio value at the end of one day. One row per user and day, so a performance
+ * chart over any period is a range scan of (user_id, snapshot_date).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_portfolio_snapshot_user_date", columnNames = {"user_id", "snapshot_date"}))
+public class PortfolioSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private LocalDate snapshotDate;
+    private double cashBalance;
+    private double positionsValue;
+    // cash plus positions
+    private double equity;
+    // some position was valued at cost for want of a current quote; re-recorded while the day lasts
+    @ColumnDefault("false")
+    private boolean estimated;
+    // recorded on demand during the day; the nightly run replaces it with the end-of-day value
+    @ColumnDefault("false")
+    private boolean provisional;
+}
@@ -0,0 +1,36 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+
+/**
+ * The value of one position at the end of one day; belongs to the {@link PortfolioSnapshot}
+ * with the same user and date.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_position_snapshot_user_date", columnList = "user_id, snapshot_date"))
+public class PositionSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private LocalDate snapshotDate;
+    private String stockSymbol;
+    private double quantity;
+    private double price;
+    private double marketValue;
+    // valued at cost because no current quote was available
+    @ColumnDefault("false")
+    private boolean estimated;
+}
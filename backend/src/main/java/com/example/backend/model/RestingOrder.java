@@ -0,0 +1,41 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A limit or stop order waiting for its trigger price. Open orders are held in memory by the
+ * order book and reloaded from this table on startup.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_resting_order_user", columnList = "user_id, created_at"),
+        @Index(name = "idx_resting_order_status", columnList = "status")
+})
+public class RestingOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+    private String stockSymbol;
+    private String side; // BUY or SELL
+    private String type; // LIMIT or STOP
+    private double quantity;
+    private double price;
+    private String status; // OPEN, FILLING (trade in progress), FILLED, CANCELLED or REJECTED
+    private LocalDateTime createdAt;
+    private LocalDateTime closedAt;
+    private Double fillPrice;
+    // why the order was rejected when it triggered
+    private String message;
+}
@@ -1,10 +1,12 @@
 package com.example.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,6 +26,7 @@ public class User implements UserDetails {
     private Long id;
     private String name;
     private String email;
+    @JsonIgnore
     private String password;
     private String mobileNo;
     private double balance;
@@ -31,6 +34,11 @@ public class User implements UserDetails {
     @Builder.Default
     private String role = "ROLE_USER";
 
+    // optimistic lock for concurrent balance/position updates; existing rows start at 0
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(role));
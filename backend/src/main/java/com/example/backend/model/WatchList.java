@@ -1,10 +1,13 @@
 package com.example.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,10 +23,15 @@ public class WatchList {
     
     private String name;
     
-    @ManyToOne
+    // lazy and never serialized; list queries project the columns they need instead
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
     
-    @ElementCollection
+    // stored as WatchListSymbol rows; filled in by WatchlistService when a watchlist is returned
+    @Transient
     @Builder.Default
     private List<String> stockSymbols = new ArrayList<>();
 } 
\ No newline at end of file
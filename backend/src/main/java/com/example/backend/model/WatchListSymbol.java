@@ -0,0 +1,30 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One symbol of a watchlist. Each symbol is its own row so adding or removing one is a single
+ * insert or delete, and the unique (watch_list_id, symbol) index makes membership checks an
+ * index lookup. Symbols are listed in ascending {@code position}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_watch_list_symbol", columnNames = {"watch_list_id", "symbol"}),
+        indexes = @Index(name = "idx_watch_list_symbol_position", columnList = "watch_list_id, position"))
+public class WatchListSymbol {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long watchListId;
+    private String symbol;
+    private long position;
+}
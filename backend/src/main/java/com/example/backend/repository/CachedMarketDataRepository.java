@@ -0,0 +1,7 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.CachedMarketData;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CachedMarketDataRepository extends JpaRepository<CachedMarketData, String> {
+}
@@ -1,9 +0,0 @@
-package com.example.backend.repository;
-
-import com.example.backend.model.Holding;
-import org.springframework.data.jpa.repository.JpaRepository;
-import java.util.List;
-
-public interface HoldingRepository extends JpaRepository<Holding, Long> {
-    List<Holding> findByUserId(Long userId);
-} 
\ No newline at end of file
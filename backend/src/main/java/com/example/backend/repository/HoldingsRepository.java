@@ -1,12 +1,37 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.HoldingExportRow;
 import com.example.backend.model.Holdings;
 import com.example.backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface HoldingsRepository extends JpaRepository<Holdings, Long> {
     Optional<Holdings> findByUserAndStockSymbol(User user, String stockSymbol);
     List<Holdings> findByUser(User user);
+    List<Holdings> findByUserIdAndQuantityGreaterThanOrderByIdAsc(Long userId, double quantity);
+
+    @Query("SELECT new com.example.backend.dto.HoldingExportRow(h.user.id, h.stockSymbol, h.quantity, h.averagePrice) "
+            + "FROM Holdings h WHERE h.user.id = :userId AND h.quantity > 0 ORDER BY h.stockSymbol")
+    Stream<HoldingExportRow> streamOpenPositions(@Param("userId") Long userId);
+
+    @Query("SELECT new com.example.backend.dto.HoldingExportRow(h.user.id, h.stockSymbol, h.quantity, h.averagePrice) "
+            + "FROM Holdings h WHERE h.user.id IN :userIds AND h.quantity > 0")
+    List<HoldingExportRow> findOpenPositions(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT DISTINCT h.stockSymbol FROM Holdings h WHERE h.quantity > 0")
+    List<String> findHeldSymbols();
+
+    @Query("SELECT new com.example.backend.dto.HoldingExportRow(h.user.id, h.stockSymbol, h.quantity, h.averagePrice) "
+            + "FROM Holdings h WHERE h.quantity > 0 ORDER BY h.user.id, h.stockSymbol")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<HoldingExportRow> streamAllOpenPositions();
 } 
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.JournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, String> {
+}
@@ -0,0 +1,14 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.PortfolioSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface PortfolioSnapshotRepository extends JpaRepository<PortfolioSnapshot, Long> {
+    List<PortfolioSnapshot> findByUserIdAndSnapshotDateBetweenOrderBySnapshotDateAsc(Long userId, LocalDate from, LocalDate to);
+    List<PortfolioSnapshot> findByUserIdInAndSnapshotDate(Collection<Long> userIds, LocalDate snapshotDate);
+    List<PortfolioSnapshot> findBySnapshotDateAndEstimatedTrue(LocalDate snapshotDate);
+}
@@ -0,0 +1,19 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.PositionSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface PositionSnapshotRepository extends JpaRepository<PositionSnapshot, Long> {
+    List<PositionSnapshot> findByUserIdAndSnapshotDateOrderByStockSymbolAsc(Long userId, LocalDate snapshotDate);
+
+    @Modifying
+    @Query("DELETE FROM PositionSnapshot p WHERE p.userId IN :userIds AND p.snapshotDate = :snapshotDate")
+    int deleteByUserIdInAndSnapshotDate(@Param("userIds") Collection<Long> userIds, @Param("snapshotDate") LocalDate snapshotDate);
+}
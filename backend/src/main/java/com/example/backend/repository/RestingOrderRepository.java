@@ -0,0 +1,12 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.RestingOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RestingOrderRepository extends JpaRepository<RestingOrder, Long> {
+    List<RestingOrder> findByStatus(String status);
+    List<RestingOrder> findByUserIdOrderByCreatedAtDesc(Long userId);
+    long countByUserIdAndStatus(Long userId, String status);
+}
@@ -1,9 +1,29 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.TransactionView;
 import com.example.backend.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findByUserIdOrderByTimestampDesc(Long userId);
-} 
\ No newline at end of file
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
+    @Query("SELECT new com.example.backend.dto.TransactionView(t.id, t.stockSymbol, t.type, t.quantity, t.price, t.total, t.timestamp) "
+            + "FROM Transaction t WHERE t.user.id = :userId ORDER BY t.timestamp, t.id")
+    List<TransactionView> findHistory(@Param("userId") Long userId);
+
+    /**
+     * Streams the user's whole history, newest first. Must be consumed inside a transaction.
+     */
+    @Query("SELECT new com.example.backend.dto.TransactionView(t.id, t.stockSymbol, t.type, t.quantity, t.price, t.total, t.timestamp) "
+            + "FROM Transaction t WHERE t.user.id = :userId ORDER BY t.timestamp DESC, t.id DESC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<TransactionView> streamByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM Transaction t")
+    long findMaxId();
+}
@@ -0,0 +1,27 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.TransactionExportRow;
+import com.example.backend.dto.TransactionFilter;
+import com.example.backend.dto.TransactionView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} of the user's transactions matching the filter, newest first,
+     * starting after the (timestamp, id) position of the last row of the previous page, or from
+     * the newest row if {@code afterTimestamp} is null.
+     */
+    List<TransactionView> findPage(Long userId, TransactionFilter filter,
+                                   LocalDateTime afterTimestamp, Long afterId, int limit);
+
+    /**
+     * Streams the transactions matching the filter in time order, for one user or for all
+     * users if {@code userId} is null, reading {@code fetchSize} rows per database round trip.
+     * Must be consumed inside a transaction.
+     */
+    Stream<TransactionExportRow> streamForExport(Long userId, TransactionFilter filter, int fetchSize);
+}
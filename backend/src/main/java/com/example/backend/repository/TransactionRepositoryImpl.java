@@ -0,0 +1,83 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.TransactionExportRow;
+import com.example.backend.dto.TransactionFilter;
+import com.example.backend.dto.TransactionView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds history queries with only the conditions that apply, so every query is a plain range
+ * scan of the (user_id, timestamp, id) index rather than a chain of "param IS NULL OR ..." tests.
+ */
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TransactionView> findPage(Long userId, TransactionFilter filter,
+                                          LocalDateTime afterTimestamp, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.backend.dto.TransactionView("
+                + "t.id, t.stockSymbol, t.type, t.quantity, t.price, t.total, t.timestamp) "
+                + "FROM Transaction t WHERE t.user.id = :userId");
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("userId", userId);
+        appendFilter(jpql, parameters, filter);
+        if (afterTimestamp != null) {
+            jpql.append(" AND (t.timestamp < :afterTimestamp OR (t.timestamp = :afterTimestamp AND t.id < :afterId))");
+            parameters.put("afterTimestamp", afterTimestamp);
+            parameters.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY t.timestamp DESC, t.id DESC");
+
+        TypedQuery<TransactionView> query = entityManager.createQuery(jpql.toString(), TransactionView.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<TransactionExportRow> streamForExport(Long userId, TransactionFilter filter, int fetchSize) {
+        StringBuilder jpql = new StringBuilder("SELECT new com.example.backend.dto.TransactionExportRow("
+                + "t.id, t.user.id, t.timestamp, t.type, t.stockSymbol, t.quantity, t.price, t.total) "
+                + "FROM Transaction t WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (userId != null) {
+            jpql.append(" AND t.user.id = :userId");
+            parameters.put("userId", userId);
+        }
+        appendFilter(jpql, parameters, filter);
+        jpql.append(" ORDER BY t.timestamp, t.id");
+
+        TypedQuery<TransactionExportRow> query = entityManager.createQuery(jpql.toString(), TransactionExportRow.class);
+        parameters.forEach(query::setParameter);
+        return query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize).getResultStream();
+    }
+
+    private static void appendFilter(StringBuilder jpql, Map<String, Object> parameters, TransactionFilter filter) {
+        if (filter.getSymbol() != null) {
+            jpql.append(" AND t.stockSymbol = :symbol");
+            parameters.put("symbol", filter.getSymbol());
+        }
+        if (filter.getType() != null) {
+            jpql.append(" AND t.type = :type");
+            parameters.put("type", filter.getType());
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.timestamp >= :from");
+            parameters.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.timestamp < :to");
+            parameters.put("to", filter.getTo());
+        }
+    }
+}
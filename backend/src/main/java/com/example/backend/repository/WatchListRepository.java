@@ -1,9 +1,19 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.WatchList;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import java.util.List;
+import java.util.Optional;
 
 public interface WatchListRepository extends JpaRepository<WatchList, Long> {
-    List<WatchList> findByUserId(Long userId);
-} 
\ No newline at end of file
+    List<WatchList> findByUserIdOrderByIdAsc(Long userId);
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    // serialises edits that assign positions within one watchlist
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WatchList w WHERE w.id = :id")
+    Optional<WatchList> findByIdForUpdate(Long id);
+}
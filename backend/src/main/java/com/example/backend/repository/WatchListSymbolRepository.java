@@ -0,0 +1,27 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.WatchListSymbol;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface WatchListSymbolRepository extends JpaRepository<WatchListSymbol, Long> {
+    List<WatchListSymbol> findByWatchListIdOrderByPositionAsc(Long watchListId);
+    List<WatchListSymbol> findByWatchListIdInOrderByWatchListIdAscPositionAsc(Collection<Long> watchListIds);
+    List<WatchListSymbol> findByWatchListIdAndSymbolIn(Long watchListId, Collection<String> symbols);
+
+    @Query("SELECT COALESCE(MAX(s.position), 0) FROM WatchListSymbol s WHERE s.watchListId = :watchListId")
+    long findMaxPosition(@Param("watchListId") Long watchListId);
+
+    @Modifying
+    @Query("DELETE FROM WatchListSymbol s WHERE s.watchListId = :watchListId AND s.symbol IN :symbols")
+    int deleteSymbols(@Param("watchListId") Long watchListId, @Param("symbols") Collection<String> symbols);
+
+    @Modifying
+    @Query("DELETE FROM WatchListSymbol s WHERE s.watchListId = :watchListId")
+    int deleteByWatchListId(@Param("watchListId") Long watchListId);
+}
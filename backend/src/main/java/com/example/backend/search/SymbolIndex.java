@@ -0,0 +1,300 @@
+package com.example.backend.search;
+
+import com.example.backend.dto.SymbolMatch;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * In-memory index of symbols and instrument names that answers the search box without calling
+ * the provider.
+ * <p>
+ * Every symbol and every word of an instrument name is a term in a sorted map, so a prefix
+ * lookup is a range scan. Matches are ranked exact symbol, symbol prefix, name-word prefix (all
+ * query words must match), then typo matches: the query within edit distance 1 of a term's
+ * prefix, or 2 for queries of five characters or more. Typo matching keeps the first character,
+ * so it only scans the terms under that letter. Ties go to the shorter symbol.
+ * <p>
+ * The index is filled from the provider's symbol list and from every upstream search response.
+ * {@link #lookup(String, int)} answers a query only when the local result can be trusted.
+ */
+@Component
+public class SymbolIndex {
+    private static final int EXACT = 0;
+    private static final int SYMBOL_PREFIX = 1;
+    private static final int NAME_PREFIX = 2;
+    private static final int TYPO = 3;
+
+    private static final int MIN_TYPO_QUERY_LENGTH = 3;
+    // stop collecting once this many listings match; short prefixes on a full symbol list match thousands
+    private static final int MAX_CANDIDATES = 5000;
+    private static final int MAX_EXHAUSTED_QUERIES = 100_000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // listing id -> data, ids are positions in these lists
+    private final List<SymbolMatch> matches = new ArrayList<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<String[]> names = new ArrayList<>();
+    // "symbol|mic" -> listing id
+    private final Map<String, Integer> idsByListing = new HashMap<>();
+    private final TreeMap<String, List<Integer>> symbolTerms = new TreeMap<>();
+    private final TreeMap<String, List<Integer>> nameTerms = new TreeMap<>();
+    // queries the provider answered with less than a full page, so all of their matches are indexed
+    private final Set<String> exhaustedQueries = new HashSet<>();
+    private volatile boolean symbolListLoaded;
+
+    /**
+     * Indexes the matches the provider returned for a query. A reply shorter than
+     * {@code pageSize} holds every match, so the query and anything starting with it can be
+     * answered locally from then on.
+     */
+    public void addSearchResult(String query, List<SymbolMatch> results, int pageSize) {
+        lock.writeLock().lock();
+        try {
+            addAll(results);
+            if (results.size() < pageSize) {
+                if (exhaustedQueries.size() >= MAX_EXHAUSTED_QUERIES) {
+                    exhaustedQueries.clear();
+                }
+                exhaustedQueries.add(normalize(query));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a symbol list dump. Once one is loaded, any query with a local match is answered
+     * locally.
+     */
+    public void addSymbolList(List<SymbolMatch> listings) {
+        lock.writeLock().lock();
+        try {
+            addAll(listings);
+            symbolListLoaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} ranked matches for the query, or null if the index cannot
+     * answer it reliably and the provider should be asked. The local answer is used when it
+     * already has {@code limit} prefix matches including the exact symbol, when the query extends
+     * one the provider fully answered before, or when a symbol list is loaded and anything matches.
+     */
+    public List<SymbolMatch> lookup(String query, int limit) {
+        String normalized = normalize(query);
+        String[] tokens = tokenize(normalized);
+        if (tokens.length == 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> tiers = new HashMap<>();
+            forEachWithPrefix(symbolTerms, normalized, tiers, id ->
+                    tiers.merge(id, symbols.get(id).equals(normalized) ? EXACT : SYMBOL_PREFIX, Math::min));
+            forEachWithPrefix(nameTerms, tokens[0], tiers, id -> {
+                if (nameMatches(names.get(id), tokens)) {
+                    tiers.merge(id, NAME_PREFIX, Math::min);
+                }
+            });
+
+            // prefix matches gathered by unrelated searches can fill a page while the exact listing
+            // was never indexed; without a symbol list, a full page alone only counts if it has it
+            boolean fullPage = tiers.size() >= limit && (symbolListLoaded || tiers.containsValue(EXACT));
+            boolean trusted = fullPage || isExhausted(normalized);
+            if (tiers.size() < limit && tokens.length == 1 && normalized.length() >= MIN_TYPO_QUERY_LENGTH) {
+                int maxDistance = normalized.length() >= 5 ? 2 : 1;
+                addTypoMatches(symbolTerms, normalized, maxDistance, tiers);
+                addTypoMatches(nameTerms, normalized, maxDistance, tiers);
+            }
+            if (!trusted && !(symbolListLoaded && !tiers.isEmpty())) {
+                return null;
+            }
+
+            List<Integer> ids = new ArrayList<>(tiers.keySet());
+            ids.sort(Comparator.<Integer>comparingInt(tiers::get)
+                    .thenComparingInt(id -> symbols.get(id).length())
+                    .thenComparing(symbols::get)
+                    .thenComparingInt(id -> id));
+            List<SymbolMatch> result = new ArrayList<>(Math.min(limit, ids.size()));
+            for (int i = 0; i < ids.size() && i < limit; i++) {
+                result.add(matches.get(ids.get(i)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return matches.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addAll(List<SymbolMatch> listings) {
+        if (listings == null) {
+            return;
+        }
+        for (SymbolMatch match : listings) {
+            if (match == null || match.getSymbol() == null || match.getSymbol().isBlank()) {
+                continue;
+            }
+            String symbol = normalize(match.getSymbol());
+            String venue = match.getMicCode() != null ? match.getMicCode() : match.getExchange();
+            String[] tokens = tokenize(match.getInstrumentName() == null ? "" : normalize(match.getInstrumentName()));
+            String key = symbol + "|" + venue;
+
+            Integer id = idsByListing.get(key);
+            if (id == null) {
+                id = matches.size();
+                idsByListing.put(key, id);
+                matches.add(match);
+                symbols.add(symbol);
+                names.add(tokens);
+                addTerm(symbolTerms, symbol, id);
+                for (String token : tokens) {
+                    addTerm(nameTerms, token, id);
+                }
+            } else {
+                // words of the old name stay in the term map; lookups re-check the current name
+                List<String> previous = Arrays.asList(names.get(id));
+                matches.set(id, match);
+                names.set(id, tokens);
+                for (String token : tokens) {
+                    if (!previous.contains(token)) {
+                        addTerm(nameTerms, token, id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addTerm(TreeMap<String, List<Integer>> terms, String term, int id) {
+        List<Integer> ids = terms.computeIfAbsent(term, t -> new ArrayList<>(1));
+        if (!ids.contains(id)) {
+            ids.add(id);
+        }
+    }
+
+    private static void forEachWithPrefix(TreeMap<String, List<Integer>> terms, String prefix,
+                                          Map<Integer, Integer> tiers, IntConsumer action) {
+        for (List<Integer> ids : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            ids.forEach(action::accept);
+            if (tiers.size() >= MAX_CANDIDATES) {
+                return;
+            }
+        }
+    }
+
+    private static void addTypoMatches(TreeMap<String, List<Integer>> terms, String query, int maxDistance,
+                                       Map<Integer, Integer> tiers) {
+        String first = query.substring(0, 1);
+        int width = query.length() + maxDistance + 1;
+        int[][] rows = new int[3][width];
+        for (Map.Entry<String, List<Integer>> term : terms.subMap(first, true, first + Character.MAX_VALUE, false).entrySet()) {
+            if (tiers.size() >= MAX_CANDIDATES) {
+                return;
+            }
+            if (term.getKey().length() < query.length() - maxDistance) {
+                continue;
+            }
+            int distance = prefixDistance(query, term.getKey(), maxDistance, rows);
+            if (distance <= maxDistance) {
+                int tier = TYPO + distance;
+                term.getValue().forEach(id -> tiers.merge(id, tier, Math::min));
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest edit distance, counting adjacent transpositions, between the query
+     * and any prefix of the term, or {@code max + 1} if it exceeds {@code max}.
+     */
+    static int prefixDistance(String query, String term, int max, int[][] rows) {
+        int n = query.length();
+        int m = Math.min(term.length(), n + max);
+        int[] beforePrevious = rows[0];
+        int[] previous = rows[1];
+        int[] current = rows[2];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = query.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(i - 1) == term.charAt(j - 2) && query.charAt(i - 2) == term.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = max + 1;
+        for (int j = Math.max(0, n - max); j <= m; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    private static boolean nameMatches(String[] name, String[] tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (String word : name) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isExhausted(String query) {
+        for (int length = 1; length <= query.length(); length++) {
+            if (exhaustedQueries.contains(query.substring(0, length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String normalized) {
+        return Arrays.stream(normalized.split("[^A-Z0-9]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toUpperCase();
+    }
+}
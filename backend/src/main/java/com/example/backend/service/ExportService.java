@@ -0,0 +1,170 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.HoldingExportRow;
+import com.example.backend.dto.TransactionExportRow;
+import com.example.backend.dto.TransactionFilter;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams transaction history and holdings to the client as CSV or newline-delimited JSON.
+ * Rows are read from a database cursor inside a read-only transaction and written as they
+ * arrive, so an export of any size uses constant memory on the server.
+ */
+@Service
+public class ExportService {
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String format) {
+            try {
+                return valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Format must be csv or ndjson");
+            }
+        }
+    }
+
+    private static final List<String> TRANSACTION_COLUMNS =
+            List.of("id", "user_id", "timestamp", "type", "symbol", "quantity", "price", "total");
+    private static final List<String> HOLDING_COLUMNS =
+            List.of("user_id", "symbol", "quantity", "average_price");
+
+    private final TransactionRepository transactionRepository;
+    private final HoldingsRepository holdingsRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ExportService(
+            TransactionRepository transactionRepository,
+            HoldingsRepository holdingsRepository,
+            TransactionTemplate transactionTemplate,
+            ObjectMapper objectMapper,
+            @Value("${stocks.export.fetch-size:1000}") int fetchSize) {
+        this.transactionRepository = transactionRepository;
+        this.holdingsRepository = holdingsRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Exports the transactions of one user, or of all users if {@code userId} is null, oldest first.
+     */
+    public StreamingResponseBody exportTransactions(Long userId, TransactionFilter filter, Format format) {
+        log.info("Exporting transactions as {} for {}", format, userId == null ? "all users" : "user " + userId);
+        return export(() -> transactionRepository.streamForExport(userId, filter, fetchSize), format,
+                TRANSACTION_COLUMNS, row -> Arrays.<Object>asList(row.getId(), row.getUserId(), row.getTimestamp(), row.getType(),
+                        row.getStockSymbol(), row.getQuantity(), row.getPrice(), row.getTotal()));
+    }
+
+    /**
+     * Exports the open positions of one user, or of all users if {@code userId} is null.
+     */
+    public StreamingResponseBody exportHoldings(Long userId, Format format) {
+        log.info("Exporting holdings as {} for {}", format, userId == null ? "all users" : "user " + userId);
+        return export(() -> userId == null
+                        ? holdingsRepository.streamAllOpenPositions()
+                        : holdingsRepository.streamOpenPositions(userId), format,
+                HOLDING_COLUMNS, row -> Arrays.<Object>asList(row.getUserId(), row.getStockSymbol(),
+                        row.getQuantity(), row.getAveragePrice()));
+    }
+
+    private <T> StreamingResponseBody export(Supplier<Stream<T>> rows, Format format,
+                                             List<String> columns, Function<T, List<Object>> values) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            JsonGenerator generator = null;
+            if (format == Format.NDJSON) {
+                // one object per line, without Jackson's default space between root values
+                generator = objectMapper.getFactory().createGenerator(writer);
+                generator.setRootValueSeparator(null);
+            } else {
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            }
+            JsonGenerator json = generator;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<T> stream = rows.get()) {
+                    stream.forEach(row -> {
+                        try {
+                            if (json != null) {
+                                json.writeObject(row);
+                                json.writeRaw('\n');
+                            } else {
+                                writeCsvLine(writer, values.apply(row));
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            });
+            if (generator != null) {
+                generator.flush();
+            }
+            writer.flush();
+        };
+    }
+
+    private static void writeCsvLine(Writer writer, List<Object> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                writer.write(escapeCsv(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,19 +1,33 @@
 package com.example.backend.service;
 
+import com.example.backend.cache.TtlCache;
 import com.example.backend.model.Holdings;
 import com.example.backend.model.User;
 import com.example.backend.repository.HoldingsRepository;
 import com.example.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
+/**
+ * Reads holdings from a per-user position map so listing and sell checks do not query the
+ * database. The map holds open positions (quantity > 0) keyed by symbol and is loaded with one
+ * query. {@link #updateHoldings} writes through to it once its transaction commits; any other
+ * code that writes holdings must call {@link #invalidate(Long)}.
+ */
 @Service
 @RequiredArgsConstructor
 public class HoldingsService {
@@ -21,17 +35,29 @@ public class HoldingsService {
     private final UserRepository userRepository;
     private static final Logger log = LoggerFactory.getLogger(HoldingsService.class);
 
+    @Value("${stocks.holdings.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${stocks.holdings.cache.max-size:1000}")
+    private int maxSize;
+
+    // user id -> open positions by symbol; values are never modified, only replaced
+    private TtlCache<Long, Map<String, Holdings>> positions;
+
+    @PostConstruct
+    public void initCache() {
+        positions = new TtlCache<>("positions", ttlSeconds * 1000, maxSize);
+    }
+
     private User getCurrentUser() {
         return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     }
 
     public List<Holdings> getAllHoldings() {
         User user = getCurrentUser();
-        List<Holdings> holdings = holdingsRepository.findByUser(user);
+        List<Holdings> holdings = withUser(positionsOf(user.getId()).values(), user);
         log.info("Found {} holdings for user {}", holdings.size(), user.getEmail());
-        return holdings.stream()
-                .filter(h -> h.getQuantity() > 0)  // Only return holdings with positive quantity
-                .collect(Collectors.toList());
+        return holdings;
     }
 
     public List<Holdings> getHoldingsByUserId(Long userId) {
@@ -39,28 +65,48 @@ public class HoldingsService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         log.info("Fetching holdings for user ID: {}", userId);
         
-        List<Holdings> holdings = holdingsRepository.findByUser(user);
+        List<Holdings> holdings = withUser(positionsOf(userId).values(), user);
         log.info("Found {} holdings for shared portfolio", holdings.size());
-        
-        return holdings.stream()
-                .filter(h -> h.getQuantity() > 0)
-                .collect(Collectors.toList());
+        return holdings;
+    }
+
+    /**
+     * Returns the user's open positions without the user attached.
+     */
+    public List<Holdings> getPositions(Long userId) {
+        return withUser(positionsOf(userId).values(), null);
     }
 
     public Holdings getHoldingsBySymbol(String symbol) {
-        User user = getCurrentUser();
+        return getHoldingsBySymbol(getCurrentUser(), symbol);
+    }
+
+    public Holdings getHoldingsBySymbol(User user, String symbol) {
         log.info("Fetching holdings for symbol: {} and user: {}", symbol, user.getEmail());
-        return holdingsRepository.findByUserAndStockSymbol(user, symbol)
-                .orElse(Holdings.builder()
-                        .stockSymbol(symbol)
-                        .quantity(0.0)
-                        .averagePrice(0.0)
-                        .build());
+        Holdings holdings = positionsOf(user.getId()).get(symbol);
+        if (holdings == null) {
+            return Holdings.builder()
+                    .stockSymbol(symbol)
+                    .quantity(0.0)
+                    .averagePrice(0.0)
+                    .build();
+        }
+        return copy(holdings, user);
     }
 
     @Transactional
     public Holdings updateHoldings(String symbol, double quantity, double price, boolean isBuy) {
-        User user = getCurrentUser();
+        return updateHoldings(getCurrentUser(), symbol, quantity, price, isBuy);
+    }
+
+    /**
+     * Applies a buy or sell to the user's position. Takes the user explicitly so trades that do
+     * not run on a request thread, such as triggered resting orders, can update holdings. A sell
+     * is checked against the row read in this transaction, never the cached positions, which
+     * only catch up after commit.
+     */
+    @Transactional
+    public Holdings updateHoldings(User user, String symbol, double quantity, double price, boolean isBuy) {
         Holdings holdings = holdingsRepository.findByUserAndStockSymbol(user, symbol)
                 .orElse(Holdings.builder()
                         .user(user)
@@ -75,11 +121,15 @@ public class HoldingsService {
             holdings.setQuantity(newTotalQuantity);
             holdings.setAveragePrice(newTotalValue / newTotalQuantity);
         } else {
+            if (holdings.getQuantity() < quantity) {
+                throw new RuntimeException("Insufficient stocks to sell");
+            }
             holdings.setQuantity(holdings.getQuantity() - quantity);
         }
 
         if (holdings.getQuantity() <= 0) {
             holdingsRepository.delete(holdings);
+            writeThrough(user.getId(), symbol, null);
             return Holdings.builder()
                     .stockSymbol(symbol)
                     .quantity(0.0)
@@ -89,6 +139,90 @@ public class HoldingsService {
 
         log.info("Updating holdings for symbol: {}, new quantity: {}, new average price: {}", 
                 symbol, holdings.getQuantity(), holdings.getAveragePrice());
-        return holdingsRepository.save(holdings);
+        Holdings saved = holdingsRepository.saveAndFlush(holdings);
+        writeThrough(user.getId(), symbol, copy(saved, null));
+        return saved;
+    }
+
+    /**
+     * Drops the user's cached positions now and, if a transaction is active, again once it
+     * completes so a concurrent read cannot re-cache the pre-commit rows.
+     */
+    public void invalidate(Long userId) {
+        positions.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    positions.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    private Map<String, Holdings> positionsOf(Long userId) {
+        return positions.get(userId, () -> {
+            Map<String, Holdings> open = new LinkedHashMap<>();
+            for (Holdings holdings : holdingsRepository.findByUserIdAndQuantityGreaterThanOrderByIdAsc(userId, 0)) {
+                open.put(holdings.getStockSymbol(), copy(holdings, null));
+            }
+            return Collections.unmodifiableMap(open);
+        });
+    }
+
+    /**
+     * Applies the new position (null once it is closed) to the cached map after commit, or
+     * drops the map if the transaction rolls back.
+     */
+    private void writeThrough(Long userId, String symbol, Holdings holdings) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyPosition(userId, symbol, holdings);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    applyPosition(userId, symbol, holdings);
+                } else {
+                    positions.invalidate(userId);
+                }
+            }
+        });
+    }
+
+    private synchronized void applyPosition(Long userId, String symbol, Holdings holdings) {
+        Map<String, Holdings> cached = positions.getIfPresent(userId);
+        if (cached == null) {
+            return;
+        }
+        Holdings current = cached.get(symbol);
+        if (holdings != null && current != null && current.getVersion() > holdings.getVersion()) {
+            return;
+        }
+        Map<String, Holdings> updated = new LinkedHashMap<>(cached);
+        if (holdings == null) {
+            updated.remove(symbol);
+        } else {
+            updated.put(symbol, holdings);
+        }
+        positions.put(userId, Collections.unmodifiableMap(updated));
+    }
+
+    private static List<Holdings> withUser(Iterable<Holdings> holdings, User user) {
+        List<Holdings> result = new ArrayList<>();
+        holdings.forEach(h -> result.add(copy(h, user)));
+        return result;
+    }
+
+    private static Holdings copy(Holdings holdings, User user) {
+        return Holdings.builder()
+                .id(holdings.getId())
+                .user(user)
+                .stockSymbol(holdings.getStockSymbol())
+                .quantity(holdings.getQuantity())
+                .averagePrice(holdings.getAveragePrice())
+                .version(holdings.getVersion())
+                .build();
     }
-} 
\ No newline at end of file
+}
@@ -1,23 +1,54 @@
 package com.example.backend.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+import com.example.backend.cache.TtlCache;
 import com.example.backend.model.User;
 
+/**
+ * Issues and validates JWTs. The signing key and parser are built once, and the claims of
+ * verified tokens are cached by token hash so a client reusing its token is not re-verified
+ * on every request. Cached claims are still checked against the token's own expiry.
+ */
 @Service
 public class JwtService {
     private static final String SECRET_KEY = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final Key SIGN_IN_KEY = Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET_KEY));
+
+    private final JwtParser parser = Jwts.parserBuilder()
+            .setSigningKey(SIGN_IN_KEY)
+            .build();
+
+    @Value("${stocks.auth.claims-cache.ttl-seconds:300}")
+    private long claimsTtlSeconds;
+
+    @Value("${stocks.auth.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    private TtlCache<String, Claims> claimsCache;
+
+    @PostConstruct
+    public void initCache() {
+        claimsCache = new TtlCache<>("jwt_claims", claimsTtlSeconds * 1000, claimsCacheMaxSize);
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -43,7 +74,7 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(SIGN_IN_KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -61,15 +92,15 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return claimsCache.get(hash(token), () -> parser.parseClaimsJws(token).getBody());
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = java.util.Base64.getDecoder().decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 } 
\ No newline at end of file
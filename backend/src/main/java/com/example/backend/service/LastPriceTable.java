@@ -0,0 +1,59 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.Quote;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest traded price per symbol, fed by every quote {@link StockService} fetches. Reads are a
+ * single lock-free map lookup, so trade execution can price an order without an upstream call
+ * or a cache lock. Each price carries the time its quote was fetched from the provider, not the
+ * time it reached the table, so callers can bound staleness.
+ */
+@Component
+public class LastPriceTable {
+
+    private static final class LastPrice {
+        final double price;
+        final long fetchedAt;
+
+        LastPrice(double price, long fetchedAt) {
+            this.price = price;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private final Map<String, LastPrice> prices = new ConcurrentHashMap<>();
+
+    public LastPriceTable(StockService stockService) {
+        stockService.addQuoteListener(this::update);
+    }
+
+    /**
+     * Returns the last price for the upper-cased symbol if its quote was fetched within
+     * {@code maxAgeMillis}, or NaN if there is none that recent.
+     */
+    public double getPrice(String symbol, long maxAgeMillis) {
+        LastPrice last = prices.get(symbol);
+        if (last == null || System.currentTimeMillis() - last.fetchedAt > maxAgeMillis) {
+            return Double.NaN;
+        }
+        return last.price;
+    }
+
+    public int size() {
+        return prices.size();
+    }
+
+    private void update(Map<String, Quote> quotes) {
+        quotes.forEach((symbol, quote) -> {
+            if (quote.getClose() > 0 && quote.getFetchedAt() > 0) {
+                LastPrice price = new LastPrice(quote.getClose(), quote.getFetchedAt());
+                // never replace a price with one from an older quote
+                prices.merge(symbol, price, (current, update) -> update.fetchedAt >= current.fetchedAt ? update : current);
+            }
+        });
+    }
+}
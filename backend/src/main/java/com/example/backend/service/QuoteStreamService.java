@@ -0,0 +1,224 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.Quote;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes live quotes to clients over server-sent events. A single scheduled poller fetches
+ * every symbol that has at least one subscriber in one batched call and fans the quotes that
+ * changed since the previous poll out to all subscribers of that symbol, so upstream cost
+ * depends on the number of distinct symbols rather than on the number of open connections.
+ */
+@Service
+@RequiredArgsConstructor
+public class QuoteStreamService {
+    private final StockService stockService;
+    private static final Logger log = LoggerFactory.getLogger(QuoteStreamService.class);
+
+    @Value("${stocks.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    // symbol -> subscriptions interested in it, guarded by "this"; the set size is the reference count
+    private final Map<String, Set<Subscription>> subscribersBySymbol = new HashMap<>();
+    private final Map<Long, Set<Subscription>> subscriptionsByWatchlist = new HashMap<>();
+    private final Map<String, Quote> lastQuotes = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribe(Collection<String> symbols) {
+        return register(new Subscription(null, new SseEmitter(emitterTimeoutMs)), symbols);
+    }
+
+    /**
+     * Subscribes to the symbols of a watchlist. The subscription follows later changes to the
+     * watchlist through {@link #changeWatchlistSymbols(Long, Collection, Collection)}.
+     */
+    public SseEmitter subscribeToWatchlist(Long watchlistId, Collection<String> symbols) {
+        return register(new Subscription(watchlistId, new SseEmitter(emitterTimeoutMs)), symbols);
+    }
+
+    /**
+     * Applies symbols added to and removed from a watchlist to its open streams, touching only
+     * those symbols rather than diffing the whole list. Subscriptions are updated under the lock;
+     * the snapshots of newly added symbols are sent after releasing it, so a slow client never
+     * holds up other streams.
+     */
+    public void changeWatchlistSymbols(Long watchlistId, Collection<String> added, Collection<String> removed) {
+        Set<String> addedSymbols = normalize(added);
+        Set<String> removedSymbols = normalize(removed);
+        Map<Subscription, Set<String>> snapshots = new HashMap<>();
+        synchronized (this) {
+            for (Subscription subscription : subscriptionsFor(watchlistId)) {
+                for (String symbol : removedSymbols) {
+                    if (subscription.symbols.remove(symbol)) {
+                        release(symbol, subscription);
+                    }
+                }
+                Set<String> subscribed = new HashSet<>();
+                for (String symbol : addedSymbols) {
+                    if (subscription.symbols.add(symbol)) {
+                        retain(symbol, subscription);
+                        subscribed.add(symbol);
+                    }
+                }
+                snapshots.put(subscription, subscribed);
+            }
+        }
+        snapshots.forEach(this::sendSnapshot);
+    }
+
+    public void closeWatchlistSubscriptions(Long watchlistId) {
+        List<Subscription> subscriptions;
+        synchronized (this) {
+            subscriptions = subscriptionsFor(watchlistId);
+        }
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    public synchronized int getSubscribedSymbolCount() {
+        return subscribersBySymbol.size();
+    }
+
+    @Scheduled(fixedDelayString = "${stocks.stream.poll-interval-ms:5000}")
+    public void pollSubscribedSymbols() {
+        Map<String, List<Subscription>> snapshot = new HashMap<>();
+        synchronized (this) {
+            subscribersBySymbol.forEach((symbol, subscriptions) -> snapshot.put(symbol, new ArrayList<>(subscriptions)));
+        }
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        Map<String, Quote> quotes;
+        try {
+            quotes = stockService.getQuotes(new ArrayList<>(snapshot.keySet()));
+        } catch (Exception e) {
+            log.error("Error polling quotes for stream: ", e);
+            return;
+        }
+
+        Map<Subscription, Map<String, Quote>> deltas = new HashMap<>();
+        quotes.forEach((symbol, quote) -> {
+            if (Objects.equals(lastQuotes.put(symbol, quote), quote)) {
+                return;
+            }
+            for (Subscription subscription : snapshot.getOrDefault(symbol, List.of())) {
+                deltas.computeIfAbsent(subscription, s -> new HashMap<>()).put(symbol, quote);
+            }
+        });
+        deltas.forEach(this::send);
+    }
+
+    private SseEmitter register(Subscription subscription, Collection<String> symbols) {
+        Set<String> normalized = normalize(symbols);
+        synchronized (this) {
+            subscription.symbols.addAll(normalized);
+            normalized.forEach(symbol -> retain(symbol, subscription));
+            if (subscription.watchlistId != null) {
+                subscriptionsByWatchlist.computeIfAbsent(subscription.watchlistId, id -> new HashSet<>()).add(subscription);
+            }
+        }
+        subscription.emitter.onCompletion(() -> unregister(subscription));
+        subscription.emitter.onTimeout(() -> unregister(subscription));
+        subscription.emitter.onError(e -> unregister(subscription));
+        log.info("Opened quote stream for {} symbols", normalized.size());
+
+        sendSnapshot(subscription, normalized);
+        return subscription.emitter;
+    }
+
+    private synchronized void unregister(Subscription subscription) {
+        subscription.symbols.forEach(symbol -> release(symbol, subscription));
+        subscription.symbols.clear();
+        if (subscription.watchlistId != null) {
+            Set<Subscription> subscriptions = subscriptionsByWatchlist.get(subscription.watchlistId);
+            if (subscriptions != null) {
+                subscriptions.remove(subscription);
+                if (subscriptions.isEmpty()) {
+                    subscriptionsByWatchlist.remove(subscription.watchlistId);
+                }
+            }
+        }
+    }
+
+    private void retain(String symbol, Subscription subscription) {
+        subscribersBySymbol.computeIfAbsent(symbol, s -> new HashSet<>()).add(subscription);
+    }
+
+    private void release(String symbol, Subscription subscription) {
+        Set<Subscription> subscriptions = subscribersBySymbol.get(symbol);
+        if (subscriptions == null) {
+            return;
+        }
+        subscriptions.remove(subscription);
+        if (subscriptions.isEmpty()) {
+            subscribersBySymbol.remove(symbol);
+            lastQuotes.remove(symbol);
+        }
+    }
+
+    private List<Subscription> subscriptionsFor(Long watchlistId) {
+        return new ArrayList<>(subscriptionsByWatchlist.getOrDefault(watchlistId, Set.of()));
+    }
+
+    private void sendSnapshot(Subscription subscription, Collection<String> symbols) {
+        Map<String, Quote> known = new HashMap<>();
+        symbols.forEach(symbol -> {
+            Quote quote = lastQuotes.get(symbol);
+            if (quote != null) {
+                known.put(symbol, quote);
+            }
+        });
+        if (!known.isEmpty()) {
+            send(subscription, known);
+        }
+    }
+
+    private void send(Subscription subscription, Map<String, Quote> quotes) {
+        try {
+            subscription.emitter.send(SseEmitter.event().name("quotes").data(quotes));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping closed quote stream: {}", e.getMessage());
+            subscription.emitter.completeWithError(e);
+            unregister(subscription);
+        }
+    }
+
+    private Set<String> normalize(Collection<String> symbols) {
+        Set<String> result = new LinkedHashSet<>();
+        symbols.forEach(symbol -> {
+            String normalized = symbol.trim().toUpperCase();
+            if (!normalized.isEmpty()) {
+                result.add(normalized);
+            }
+        });
+        return result;
+    }
+
+    private static final class Subscription {
+        private final Long watchlistId;
+        private final SseEmitter emitter;
+        private final Set<String> symbols = new HashSet<>();
+
+        private Subscription(Long watchlistId, SseEmitter emitter) {
+            this.watchlistId = watchlistId;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.backend.service;
+
+import com.example.backend.client.UpstreamPriority;
+import com.example.backend.dto.CacheStats;
+import com.example.backend.model.CachedMarketData;
+import com.example.backend.repository.CachedMarketDataRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Refresh-ahead cache for slow-changing Alpha Vantage datasets (top movers, news, fundamentals,
+ * financials). Entries that are still being read are refreshed in the background before they
+ * expire, expired entries are served while a refresh runs, and the last good value is served if
+ * the upstream call fails. Loaded values are persisted so a restart starts warm.
+ * <p>
+ * Alpha Vantage reports errors and rate limits in a 200 response ({@code "Error Message"},
+ * {@code "Note"}, {@code "Information"}) or answers with an empty object; such payloads count as
+ * failed refreshes, so they are never cached or persisted over the last good value.
+ */
+@Service
+public class ReferenceDataCache {
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+    private static final List<String> ERROR_FIELDS = List.of("Error Message", "Note", "Information");
+
+    public enum Dataset {
+        TOP_MOVERS(UpstreamPriority.NEWS),
+        NEWS(UpstreamPriority.NEWS),
+        FUNDAMENTALS(UpstreamPriority.FUNDAMENTALS),
+        FINANCIALS(UpstreamPriority.FUNDAMENTALS);
+
+        private final UpstreamPriority priority;
+
+        Dataset(UpstreamPriority priority) {
+            this.priority = priority;
+        }
+    }
+
+    private final CachedMarketDataRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Map<Dataset, Long> ttlMillis = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, LongAdder> hits = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, LongAdder> misses = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, LongAdder> staleServed = new EnumMap<>(Dataset.class);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final boolean persist;
+    private final double refreshAheadFraction;
+    private final int maxEntries;
+
+    public ReferenceDataCache(
+            CachedMarketDataRepository repository,
+            ObjectMapper objectMapper,
+            @Value("${stocks.reference-cache.top-movers.ttl-seconds:900}") long topMoversTtlSeconds,
+            @Value("${stocks.reference-cache.news.ttl-seconds:900}") long newsTtlSeconds,
+            @Value("${stocks.reference-cache.fundamentals.ttl-seconds:86400}") long fundamentalsTtlSeconds,
+            @Value("${stocks.reference-cache.financials.ttl-seconds:86400}") long financialsTtlSeconds,
+            @Value("${stocks.reference-cache.persist:true}") boolean persist,
+            @Value("${stocks.reference-cache.refresh-ahead-fraction:0.8}") double refreshAheadFraction,
+            @Value("${stocks.reference-cache.max-entries:1000}") int maxEntries) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.persist = persist;
+        this.refreshAheadFraction = refreshAheadFraction;
+        this.maxEntries = maxEntries;
+        ttlMillis.put(Dataset.TOP_MOVERS, topMoversTtlSeconds * 1000);
+        ttlMillis.put(Dataset.NEWS, newsTtlSeconds * 1000);
+        ttlMillis.put(Dataset.FUNDAMENTALS, fundamentalsTtlSeconds * 1000);
+        ttlMillis.put(Dataset.FINANCIALS, financialsTtlSeconds * 1000);
+        for (Dataset dataset : Dataset.values()) {
+            hits.put(dataset, new LongAdder());
+            misses.put(dataset, new LongAdder());
+            staleServed.put(dataset, new LongAdder());
+        }
+    }
+
+    /**
+     * Returns the cached value for the dataset and id, loading it with the loader on a miss.
+     * The loader receives the priority to schedule the upstream call with.
+     */
+    public CompletableFuture<Object> get(Dataset dataset, String id,
+                                         Function<UpstreamPriority, CompletableFuture<Object>> loader) {
+        String key = dataset.name() + ":" + id;
+        long now = System.currentTimeMillis();
+        // the database read happens outside computeIfAbsent, which would hold the map's bin lock
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry(dataset, k, loader));
+        restore(entry);
+        entry.lastAccess = now;
+
+        Object value = entry.value;
+        if (value != null) {
+            if (now - entry.fetchedAt < ttlMillis.get(dataset)) {
+                hits.get(dataset).increment();
+            } else {
+                staleServed.get(dataset).increment();
+                refresh(entry, UpstreamPriority.BACKGROUND);
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        misses.get(dataset).increment();
+        return refresh(entry, dataset.priority);
+    }
+
+    @Scheduled(fixedDelayString = "${stocks.reference-cache.refresh-interval-ms:60000}")
+    public void refreshAhead() {
+        long now = System.currentTimeMillis();
+        for (Entry entry : entries.values()) {
+            long ttl = ttlMillis.get(entry.dataset);
+            boolean nearExpiry = entry.value != null && now - entry.fetchedAt >= ttl * refreshAheadFraction;
+            boolean recentlyRead = now - entry.lastAccess < ttl;
+            if (nearExpiry && recentlyRead) {
+                refresh(entry, UpstreamPriority.BACKGROUND);
+            }
+        }
+        evictOverflow();
+    }
+
+    public List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>();
+        for (Dataset dataset : Dataset.values()) {
+            int size = (int) entries.values().stream().filter(e -> e.dataset == dataset).count();
+            stats.add(CacheStats.builder()
+                    .name(dataset.name().toLowerCase())
+                    .size(size)
+                    .maxSize(maxEntries)
+                    .ttlMillis(ttlMillis.get(dataset))
+                    .hits(hits.get(dataset).sum() + staleServed.get(dataset).sum())
+                    .misses(misses.get(dataset).sum())
+                    .build());
+        }
+        return stats;
+    }
+
+    private CompletableFuture<Object> refresh(Entry entry, UpstreamPriority priority) {
+        CompletableFuture<Object> result;
+        synchronized (entry) {
+            if (entry.inFlight != null) {
+                return entry.inFlight;
+            }
+            result = new CompletableFuture<>();
+            entry.inFlight = result;
+        }
+
+        CompletableFuture<Object> load;
+        try {
+            load = entry.loader.apply(priority);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+
+        load.whenComplete((value, loadError) -> {
+            synchronized (entry) {
+                entry.inFlight = null;
+            }
+            String rejected = loadError == null && value != null ? errorIn(value) : null;
+            Throwable error = loadError;
+            if (rejected != null) {
+                log.warn("Upstream returned no data for {}: {}", entry.key, rejected);
+                error = new RuntimeException("Market data is temporarily unavailable, please try again shortly");
+            }
+            if (error == null) {
+                if (value != null) {
+                    entry.value = value;
+                    entry.fetchedAt = System.currentTimeMillis();
+                    save(entry);
+                }
+                result.complete(value != null ? value : entry.value);
+            } else if (entry.value != null) {
+                log.warn("Refresh of {} failed, serving last known value: {}", entry.key, error.getMessage());
+                result.complete(entry.value);
+            } else {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the entry's persisted value on its first use. Concurrent first readers of the same
+     * key wait for the one database read; other keys are not held up.
+     */
+    private void restore(Entry entry) {
+        if (!persist || entry.restored) {
+            return;
+        }
+        synchronized (entry.restoreLock) {
+            if (entry.restored) {
+                return;
+            }
+            try {
+                repository.findById(entry.key).ifPresent(cached -> {
+                    try {
+                        Object value = objectMapper.readValue(cached.getPayload(), Object.class);
+                        String rejected = errorIn(value);
+                        if (rejected != null) {
+                            log.warn("Discarding cached error payload for {}: {}", entry.key, rejected);
+                            return;
+                        }
+                        // a refresh may have completed meanwhile; never overwrite a newer value
+                        if (entry.value == null) {
+                            entry.value = value;
+                            entry.fetchedAt = cached.getFetchedAt().toEpochMilli();
+                            log.info("Restored {} from database, fetched at {}", entry.key, cached.getFetchedAt());
+                        }
+                    } catch (Exception e) {
+                        log.warn("Discarding unreadable cached payload for {}: {}", entry.key, e.getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Error reading cached {} from database: {}", entry.key, e.getMessage());
+            }
+            entry.restored = true;
+        }
+    }
+
+    /**
+     * Returns the provider's error or rate-limit message if the payload is one, a placeholder for
+     * an empty payload, or null if it carries data.
+     */
+    private static String errorIn(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            for (String field : ERROR_FIELDS) {
+                if (map.get(field) != null) {
+                    return String.valueOf(map.get(field));
+                }
+            }
+            return map.isEmpty() ? "empty response" : null;
+        }
+        if (value instanceof Collection<?> collection && collection.isEmpty()) {
+            return "empty response";
+        }
+        return null;
+    }
+
+    private void save(Entry entry) {
+        if (!persist) {
+            return;
+        }
+        try {
+            repository.save(CachedMarketData.builder()
+                    .cacheKey(entry.key)
+                    .payload(objectMapper.writeValueAsString(entry.value))
+                    .fetchedAt(Instant.ofEpochMilli(entry.fetchedAt))
+                    .build());
+        } catch (Exception e) {
+            log.warn("Error persisting cached {}: {}", entry.key, e.getMessage());
+        }
+    }
+
+    private void evictOverflow() {
+        int overflow = entries.size() - maxEntries;
+        if (overflow <= 0) {
+            return;
+        }
+        entries.values().stream()
+                .sorted(Comparator.comparingLong(e -> e.lastAccess))
+                .limit(overflow)
+                .toList()
+                .forEach(e -> entries.remove(e.key, e));
+    }
+
+    private static final class Entry {
+        private final Dataset dataset;
+        private final String key;
+        private final Function<UpstreamPriority, CompletableFuture<Object>> loader;
+        private volatile Object value;
+        private volatile long fetchedAt;
+        private volatile long lastAccess;
+        private volatile boolean restored;
+        private final Object restoreLock = new Object();
+        // guarded by "this"
+        private CompletableFuture<Object> inFlight;
+
+        private Entry(Dataset dataset, String key, Function<UpstreamPriority, CompletableFuture<Object>> loader) {
+            this.dataset = dataset;
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+}
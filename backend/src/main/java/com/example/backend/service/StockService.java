@@ -1,46 +1,384 @@
 package com.example.backend.service;
 
+import com.example.backend.cache.TtlCache;
+import com.example.backend.client.MarketDataClient;
+import com.example.backend.client.Provider;
+import com.example.backend.client.UpstreamPriority;
+import com.example.backend.client.UpstreamScheduler;
+import com.example.backend.client.UpstreamThrottledException;
+import com.example.backend.dto.CacheStats;
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.SymbolMatch;
+import com.example.backend.dto.SymbolSearchResult;
+import com.example.backend.dto.TimeSeries;
+import com.example.backend.dto.UpstreamStats;
+import com.example.backend.search.SymbolIndex;
+import com.example.backend.timeseries.BarStore;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class StockService {
-    private final RestTemplate restTemplate;
+    private final MarketDataClient marketDataClient;
+    private final UpstreamScheduler upstreamScheduler;
+    private final ReferenceDataCache referenceDataCache;
+    private final BarStore barStore;
+    private final SymbolIndex symbolIndex;
+    private final ObjectMapper objectMapper;
     private static final Logger log = LoggerFactory.getLogger(StockService.class);
-    
+
     @Value("${twelvedata.api.key}")
     private String apiKey;
-    
+
+    @Value("${alphavantage.api.key}")
+    private String alphaVantageApiKey;
+
+    @Value("${stocks.cache.quote.ttl-seconds:15}")
+    private long quoteTtlSeconds;
+
+    @Value("${stocks.bars.window:30}")
+    private int barWindow;
+
+    @Value("${stocks.cache.search.ttl-seconds:3600}")
+    private long searchTtlSeconds;
+
+    @Value("${stocks.search.max-results:30}")
+    private int searchMaxResults;
+
+    @Value("${stocks.search.symbol-list.exchanges:}")
+    private List<String> symbolListExchanges;
+
+    @Value("${stocks.quote.batch-size:50}")
+    private int quoteBatchSize;
+
+    @Value("${stocks.cache.max-size:1000}")
+    private int cacheMaxSize;
+
     private static final String BASE_URL = "https://api.twelvedata.com";
+    private static final String ALPHA_VANTAGE_URL = "https://www.alphavantage.co/query";
+
+    private TtlCache<String, Quote> quoteCache;
+    private TtlCache<String, SymbolSearchResult> searchCache;
+    private ObjectReader quoteReader;
+    private final List<Consumer<Map<String, Quote>>> quoteListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void initCaches() {
+        quoteReader = objectMapper.readerFor(Quote.class);
+        quoteCache = new TtlCache<>("quote", quoteTtlSeconds * 1000, cacheMaxSize);
+        searchCache = new TtlCache<>("symbol_search", searchTtlSeconds * 1000, cacheMaxSize);
+    }
+
+    /**
+     * Searches symbols and instrument names. Queries the local {@link SymbolIndex} can answer
+     * never reach the provider; the rest are sent to TwelveData and the reply is added to the
+     * index, so typing further into the search box is usually answered locally.
+     */
+    public SymbolSearchResult searchStocks(String symbol) {
+        List<SymbolMatch> local = symbolIndex.lookup(symbol, searchMaxResults);
+        if (local != null) {
+            return SymbolSearchResult.builder().data(local).status("ok").build();
+        }
+        return searchCache.get(normalize(symbol), () -> {
+            String url = String.format("%s/symbol_search?symbol=%s&outputsize=%d&apikey=%s",
+                    BASE_URL, encode(symbol), searchMaxResults, apiKey);
+            log.info("Searching stocks with URL: {}", url);
+
+            try {
+                SymbolSearchResult response = marketDataClient.get(
+                        Provider.TWELVE_DATA, UpstreamPriority.QUOTE, url, SymbolSearchResult.class);
+                log.info("Search response: {}", response);
+                if (response != null && response.getData() != null) {
+                    symbolIndex.addSearchResult(symbol, response.getData(), searchMaxResults);
+                }
+                return response;
+            } catch (Exception e) {
+                log.error("Error searching stocks: ", e);
+                throw new RuntimeException("Failed to search stocks", e);
+            }
+        });
+    }
+
+    /**
+     * Loads TwelveData's symbol list for each exchange in {@code stocks.search.symbol-list.exchanges}
+     * into the search index. Does nothing when no exchanges are configured.
+     */
+    @Scheduled(fixedDelayString = "${stocks.search.symbol-list.refresh-interval-ms:86400000}")
+    public void refreshSymbolList() {
+        for (String exchange : symbolListExchanges) {
+            if (exchange.isBlank()) {
+                continue;
+            }
+            String url = String.format("%s/stocks?exchange=%s&apikey=%s", BASE_URL, encode(exchange.trim()), apiKey);
+            try {
+                SymbolSearchResult list = marketDataClient.get(
+                        Provider.TWELVE_DATA, UpstreamPriority.BACKGROUND, url, SymbolSearchResult.class);
+                if (list != null && list.getData() != null) {
+                    symbolIndex.addSymbolList(list.getData());
+                    log.info("Loaded {} symbols for {}, search index holds {}", list.getData().size(), exchange, symbolIndex.size());
+                }
+            } catch (Exception e) {
+                log.error("Error loading symbol list for {}: ", exchange, e);
+            }
+        }
+    }
+
+    /**
+     * Returns chart bars from the local bar store, fetching only bars newer than the last stored one.
+     */
+    public TimeSeries getStockData(String symbol, String interval) {
+        return barStore.getBars(normalize(symbol), interval, barWindow, (lastDatetime, outputSize) -> {
+            // without outputsize the provider returns only its default 30 bars, even after start_date
+            String url = String.format("%s/time_series?symbol=%s&interval=%s&outputsize=%d&apikey=%s",
+                BASE_URL, encode(symbol), encode(interval), outputSize, apiKey);
+            if (lastDatetime != null) {
+                url += "&start_date=" + encode(lastDatetime);
+            }
+            return marketDataClient.get(Provider.TWELVE_DATA, UpstreamPriority.QUOTE, url, TimeSeries.class);
+        });
+    }
+
+    /**
+     * Returns the quote for the symbol, or null if the provider does not know it. When the
+     * provider's budget is exhausted the last known quote is returned instead; check its
+     * {@code fetchedAt} before relying on it.
+     */
+    public Quote getQuote(String symbol) {
+        String key = normalize(symbol);
+        return orStale(quoteCache, key, () -> quoteCache.get(key, () -> {
+            String url = String.format("%s/quote?symbol=%s&apikey=%s", BASE_URL, encode(symbol), apiKey);
+            Quote quote = marketDataClient.get(Provider.TWELVE_DATA, UpstreamPriority.QUOTE, url, this::readQuote);
+            if (quote != null) {
+                publish(Map.of(key, quote));
+            }
+            return quote;
+        }));
+    }
+
+    /**
+     * Returns the cached quote for the symbol if it is still fresh, without calling the provider.
+     */
+    public Quote getCachedQuote(String symbol) {
+        return quoteCache.getIfPresent(normalize(symbol));
+    }
+
+    /**
+     * Returns the last quote fetched for the symbol even if it has expired, or null if there is none.
+     */
+    public Quote getLastKnownQuote(String symbol) {
+        return quoteCache.getStale(normalize(symbol));
+    }
+
+    /**
+     * Registers a listener called with every batch of quotes fetched from the provider, keyed by
+     * upper-cased symbol. Listeners run on the fetching thread and must not block.
+     */
+    public void addQuoteListener(Consumer<Map<String, Quote>> listener) {
+        quoteListeners.add(listener);
+    }
+
+    /**
+     * Returns quotes for many symbols keyed by upper-cased symbol. Cached quotes are served
+     * locally and the rest are fetched with TwelveData's multi-symbol quote call, chunked to
+     * {@code stocks.quote.batch-size} symbols per request. Unknown symbols are omitted.
+     */
+    public Map<String, Quote> getQuotes(List<String> symbols) {
+        List<String> keys = symbols.stream()
+                .map(this::normalize)
+                .filter(symbol -> !symbol.isEmpty())
+                .distinct()
+                .toList();
+        return quoteCache.getAll(keys, this::fetchQuotes);
+    }
+
+    /**
+     * Like {@link #getQuotes(List)}, but symbols without a fresh quote get their last known one,
+     * if any. Those are handed to the caller only, never cached again or published, and carry
+     * their original {@code fetchedAt}.
+     */
+    public Map<String, Quote> getQuotesOrStale(List<String> symbols) {
+        Map<String, Quote> quotes = new LinkedHashMap<>(getQuotes(symbols));
+        for (String symbol : symbols) {
+            String key = normalize(symbol);
+            if (!key.isEmpty() && !quotes.containsKey(key)) {
+                Quote stale = quoteCache.getStale(key);
+                if (stale != null) {
+                    quotes.put(key, stale);
+                }
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Returns whether the quote was fetched within the quote cache TTL.
+     */
+    public boolean isFresh(Quote quote) {
+        return quote != null && System.currentTimeMillis() - quote.getFetchedAt() <= quoteTtlSeconds * 1000;
+    }
+
+    private Map<String, Quote> fetchQuotes(List<String> symbols) {
+        Map<List<String>, CompletableFuture<Map<String, Quote>>> requests = new LinkedHashMap<>();
+        for (int from = 0; from < symbols.size(); from += quoteBatchSize) {
+            List<String> chunk = symbols.subList(from, Math.min(from + quoteBatchSize, symbols.size()));
+            String url = String.format("%s/quote?symbol=%s&apikey=%s", BASE_URL, encode(String.join(",", chunk)), apiKey);
+            requests.put(chunk, marketDataClient.getAsync(Provider.TWELVE_DATA, UpstreamPriority.QUOTE, url,
+                    parser -> chunk.size() == 1 ? singleQuote(chunk.get(0), readQuote(parser)) : readQuotes(parser)));
+        }
+
+        Map<String, Quote> quotes = new HashMap<>();
+        requests.forEach((chunk, request) -> {
+            try {
+                quotes.putAll(request.join());
+            } catch (Exception e) {
+                if (e.getCause() instanceof UpstreamThrottledException) {
+                    // stale quotes must not be cached again or published as new prices
+                    log.warn("Quote budget exhausted, no fresh quotes for {}", chunk);
+                } else {
+                    log.error("Error fetching quotes for {}: ", chunk, e);
+                }
+            }
+        });
+        publish(quotes);
+        return quotes;
+    }
+
+    private void publish(Map<String, Quote> quotes) {
+        if (quotes.isEmpty()) {
+            return;
+        }
+        for (Consumer<Map<String, Quote>> listener : quoteListeners) {
+            try {
+                listener.accept(quotes);
+            } catch (RuntimeException e) {
+                log.error("Error in quote listener: ", e);
+            }
+        }
+    }
+
+    /**
+     * Reads one quote object; provider error replies carry no symbol and are read as null.
+     */
+    private Quote readQuote(JsonParser parser) throws IOException {
+        Quote quote = quoteReader.readValue(parser);
+        if (quote == null || quote.getSymbol() == null) {
+            return null;
+        }
+        quote.setFetchedAt(System.currentTimeMillis());
+        return quote;
+    }
+
+    /**
+     * Reads a multi-symbol reply, an object of quotes keyed by symbol, without building an intermediate tree.
+     */
+    private Map<String, Quote> readQuotes(JsonParser parser) throws IOException {
+        Map<String, Quote> quotes = new HashMap<>();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return quotes;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String symbol = parser.getCurrentName();
+            Quote quote = parser.nextToken() == JsonToken.START_OBJECT ? readQuote(parser) : null;
+            if (quote != null) {
+                quotes.put(normalize(symbol), quote);
+            } else {
+                parser.skipChildren();
+                log.warn("No quote for {}", symbol);
+            }
+        }
+        return quotes;
+    }
+
+    private Map<String, Quote> singleQuote(String symbol, Quote quote) {
+        if (quote == null) {
+            log.warn("No quote for {}", symbol);
+            return Map.of();
+        }
+        return Map.of(symbol, quote);
+    }
+
+    public CompletableFuture<Object> getTopMovers() {
+        String url = String.format("%s?function=TOP_GAINERS_LOSERS&apikey=%s", ALPHA_VANTAGE_URL, alphaVantageApiKey);
+        return referenceDataCache.get(ReferenceDataCache.Dataset.TOP_MOVERS, "all",
+                priority -> marketDataClient.getAsync(Provider.ALPHA_VANTAGE, priority, url));
+    }
+
+    public CompletableFuture<Object> getFundamentals(String symbol) {
+        String url = String.format("%s?function=OVERVIEW&symbol=%s&apikey=%s", ALPHA_VANTAGE_URL, encode(symbol), alphaVantageApiKey);
+        return referenceDataCache.get(ReferenceDataCache.Dataset.FUNDAMENTALS, normalize(symbol),
+                priority -> marketDataClient.getAsync(Provider.ALPHA_VANTAGE, priority, url));
+    }
+
+    public CompletableFuture<Object> getFinancials(String symbol) {
+        String url = String.format("%s?function=CASH_FLOW&symbol=%s&apikey=%s", ALPHA_VANTAGE_URL, encode(symbol), alphaVantageApiKey);
+        return referenceDataCache.get(ReferenceDataCache.Dataset.FINANCIALS, normalize(symbol),
+                priority -> marketDataClient.getAsync(Provider.ALPHA_VANTAGE, priority, url));
+    }
+
+    public CompletableFuture<Object> getMarketNews() {
+        String url = String.format("%s?function=NEWS_SENTIMENT&apikey=%s", ALPHA_VANTAGE_URL, alphaVantageApiKey);
+        return referenceDataCache.get(ReferenceDataCache.Dataset.NEWS, "all",
+                priority -> marketDataClient.getAsync(Provider.ALPHA_VANTAGE, priority, url));
+    }
+
+    public List<UpstreamStats> getUpstreamStats() {
+        return upstreamScheduler.getStats();
+    }
+
+    public List<CacheStats> getCacheStats() {
+        List<CacheStats> stats = new ArrayList<>(List.of(quoteCache.stats(), searchCache.stats()));
+        stats.addAll(referenceDataCache.getStats());
+        return stats;
+    }
 
-    public Map<String, Object> searchStocks(String symbol) {
-        String url = String.format("%s/symbol_search?symbol=%s&apikey=%s", BASE_URL, symbol, apiKey);
-        log.info("Searching stocks with URL: {}", url);
-        
+    /**
+     * Runs the cached lookup, falling back to the last cached value when the provider's budget is
+     * exhausted. The fallback goes to the caller only: it is not cached again with a fresh TTL
+     * or published to quote listeners.
+     */
+    private <V> V orStale(TtlCache<String, V> cache, String key, Supplier<V> call) {
         try {
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            log.info("Search response: {}", response);
-            return response;
-        } catch (Exception e) {
-            log.error("Error searching stocks: ", e);
-            throw new RuntimeException("Failed to search stocks", e);
+            return call.get();
+        } catch (UpstreamThrottledException e) {
+            V stale = cache.getStale(key);
+            if (stale == null) {
+                throw e;
+            }
+            log.warn("Serving stale {} for {}: {}", cache.getName(), key, e.getMessage());
+            return stale;
         }
     }
 
-    public Object getStockData(String symbol, String interval) {
-        String url = String.format("%s/time_series?symbol=%s&interval=%s&apikey=%s", 
-            BASE_URL, symbol, interval, apiKey);
-        return restTemplate.getForObject(url, Object.class);
+    /**
+     * Encodes a client-supplied value for use as a query parameter.
+     */
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
     }
 
-    public Object getQuote(String symbol) {
-        String url = String.format("%s/quote?symbol=%s&apikey=%s", BASE_URL, symbol, apiKey);
-        return restTemplate.getForObject(url, Object.class);
+    private String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
     }
-} 
\ No newline at end of file
+}
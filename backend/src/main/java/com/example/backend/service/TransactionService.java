@@ -1,101 +1,233 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.TradingStats;
+import com.example.backend.dto.TransactionFilter;
+import com.example.backend.dto.TransactionPage;
+import com.example.backend.dto.TransactionView;
 import com.example.backend.model.Transaction;
 import com.example.backend.model.User;
-import com.example.backend.model.Holdings;
 import com.example.backend.repository.TransactionRepository;
-import com.example.backend.repository.UserRepository;
-import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.trading.TradeExecutor;
+import com.example.backend.valuation.PortfolioValuationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
     private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
-    private final HoldingsService holdingsService;
-    private static final Logger log = LoggerFactory.getLogger(TransactionService.class);
+    private final TradeExecutor tradeExecutor;
+    private final PortfolioValuationService portfolioValuationService;
+    private final StockService stockService;
+    private final LastPriceTable lastPriceTable;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
 
-    @Transactional
-    public Transaction buyStock(String symbol, double quantity, double price) {
-        User user = getCurrentUser();
-        double total = quantity * price;
-        
-        if (user.getBalance() < total) {
-            throw new RuntimeException("Insufficient balance");
-        }
+    @Value("${stocks.trading.max-batch-orders:100}")
+    private int maxBatchOrders;
 
-        // Update holdings first
-        Holdings holdings = holdingsService.updateHoldings(symbol, quantity, price, true);
-        log.info("Updated holdings after buy - Symbol: {}, Quantity: {}, Average Price: {}", 
-                symbol, holdings.getQuantity(), holdings.getAveragePrice());
-
-        // Update user balance
-        user.setBalance(user.getBalance() - total);
-        userRepository.save(user);
-
-        // Create transaction record
-        Transaction transaction = Transaction.builder()
-                .user(user)
-                .stockSymbol(symbol)
-                .quantity(quantity)
-                .price(price)
-                .type("BUY")
-                .timestamp(LocalDateTime.now())
-                .total(total)
-                .build();
+    @Value("${stocks.trading.max-price-age-ms:30000}")
+    private long maxPriceAgeMillis;
 
-        return transactionRepository.save(transaction);
+    @Value("${stocks.trading.max-price-deviation:0.05}")
+    private double maxPriceDeviation;
+
+    @Value("${stocks.transactions.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${stocks.transactions.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * Buys at the server's current price. {@code expectedPrice}, the price the client showed,
+     * is optional; if given, the trade is rejected when the market has moved too far from it.
+     */
+    public Transaction buyStock(String symbol, double quantity, Double expectedPrice) {
+        User user = getCurrentUser();
+        double price = executionPrice(symbol, expectedPrice);
+        return portfolioValuationService.trade(user.getId(), () -> tradeExecutor.buy(user, symbol, quantity, price));
     }
 
-    @Transactional
-    public Transaction sellStock(String symbol, double quantity, double price) {
+    public Transaction sellStock(String symbol, double quantity, Double expectedPrice) {
         User user = getCurrentUser();
-        Holdings currentHoldings = holdingsService.getHoldingsBySymbol(symbol);
-        
-        if (currentHoldings.getQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stocks to sell");
+        double price = executionPrice(symbol, expectedPrice);
+        return portfolioValuationService.trade(user.getId(), () -> tradeExecutor.sell(user, symbol, quantity, price));
+    }
+
+    /**
+     * Executes a list of orders as one unit; if any order is rejected none is applied. Orders
+     * are priced like single trades; an order's price, if set, is the expected price.
+     */
+    public List<Transaction> executeBatch(List<OrderRequest> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new RuntimeException("No orders given");
+        }
+        if (orders.size() > maxBatchOrders) {
+            throw new RuntimeException("At most " + maxBatchOrders + " orders per batch");
+        }
+        for (OrderRequest order : orders) {
+            if (order.getSymbol() == null || order.getSymbol().isBlank()) {
+                throw new RuntimeException("Every order needs a symbol");
+            }
+            if (!"BUY".equalsIgnoreCase(order.getType()) && !"SELL".equalsIgnoreCase(order.getType())) {
+                throw new RuntimeException("Order type must be BUY or SELL");
+            }
+            if (order.getQuantity() <= 0) {
+                throw new RuntimeException("Quantity must be greater than 0");
+            }
+            if (order.getPrice() < 0) {
+                throw new RuntimeException("Price must not be negative");
+            }
         }
+        // one upstream call for every symbol without a current price, instead of one per order
+        List<String> unpriced = orders.stream()
+                .map(order -> order.getSymbol().trim().toUpperCase())
+                .distinct()
+                .filter(symbol -> Double.isNaN(lastPriceTable.getPrice(symbol, maxPriceAgeMillis)))
+                .toList();
+        Map<String, Quote> quotes = unpriced.isEmpty() ? Map.of() : stockService.getQuotes(unpriced);
+        List<OrderRequest> priced = orders.stream()
+                .map(order -> OrderRequest.builder()
+                        .symbol(order.getSymbol())
+                        .type(order.getType())
+                        .quantity(order.getQuantity())
+                        .price(executionPrice(order.getSymbol(), order.getPrice() > 0 ? order.getPrice() : null, quotes))
+                        .build())
+                .toList();
+        User user = getCurrentUser();
+        return portfolioValuationService.tradeAll(user.getId(), () -> tradeExecutor.executeBatch(user, priced));
+    }
 
-        double total = quantity * price;
-        double brokerage = total * 0.03;
-        double netTotal = total - brokerage;
-
-        // Update holdings first
-        Holdings holdings = holdingsService.updateHoldings(symbol, quantity, price, false);
-        log.info("Updated holdings after sell - Symbol: {}, Quantity: {}, Average Price: {}", 
-                symbol, holdings.getQuantity(), holdings.getAveragePrice());
-
-        // Update user balance
-        user.setBalance(user.getBalance() + netTotal);
-        userRepository.save(user);
-
-        // Create transaction record
-        Transaction transaction = Transaction.builder()
-                .user(user)
-                .stockSymbol(symbol)
-                .quantity(quantity)
-                .price(price)
-                .type("SELL")
-                .timestamp(LocalDateTime.now())
-                .total(netTotal)
+    /**
+     * Writes the current user's whole history as a JSON array, newest first, reading rows from
+     * a database cursor so memory use does not grow with the history.
+     */
+    public StreamingResponseBody streamUserTransactions() {
+        Long userId = getCurrentUser().getId();
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<TransactionView> transactions = transactionRepository.streamByUserId(userId)) {
+                        transactions.forEach(transaction -> {
+                            try {
+                                generator.writeObject(transaction);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Returns one page of the current user's history, newest first. Pages are addressed by the
+     * opaque cursor of the previous page rather than an offset, so every page costs the same
+     * index range scan however deep it is.
+     */
+    public TransactionPage getTransactionPage(String cursor, Integer limit, TransactionFilter filter) {
+        int pageSize = limit == null ? defaultPageSize : limit;
+        if (pageSize <= 0 || pageSize > maxPageSize) {
+            throw new RuntimeException("Limit must be between 1 and " + maxPageSize);
+        }
+        if (filter.getType() != null) {
+            filter.setType(filter.getType().trim().toUpperCase());
+            if (!"BUY".equals(filter.getType()) && !"SELL".equals(filter.getType())) {
+                throw new RuntimeException("Type must be BUY or SELL");
+            }
+        }
+        if (filter.getSymbol() != null) {
+            filter.setSymbol(filter.getSymbol().trim());
+        }
+
+        LocalDateTime afterTimestamp = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterTimestamp = LocalDateTime.parse(position[0]);
+                afterId = Long.parseLong(position[1]);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+
+        // fetch one extra row to learn whether there is a next page
+        List<TransactionView> transactions = transactionRepository.findPage(
+                getCurrentUser().getId(), filter, afterTimestamp, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            TransactionView last = transactions.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getTimestamp() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return TransactionPage.builder()
+                .transactions(transactions)
+                .nextCursor(nextCursor)
                 .build();
+    }
+
+    /**
+     * Returns the price to execute at: the last price from the shared table when it is recent
+     * enough, otherwise a quote from {@link StockService}, which also refreshes the table. Either
+     * way the price must come from a quote fetched within {@code stocks.trading.max-price-age-ms}.
+     */
+    private double executionPrice(String symbol, Double expectedPrice) {
+        return executionPrice(symbol, expectedPrice, null);
+    }
 
-        return transactionRepository.save(transaction);
+    /**
+     * Prices a trade at the server's last price. When that is too old, the quote is taken from
+     * {@code quotes} if given, otherwise fetched for this symbol alone.
+     */
+    private double executionPrice(String symbol, Double expectedPrice, Map<String, Quote> quotes) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new RuntimeException("Symbol is required");
+        }
+        String key = symbol.trim().toUpperCase();
+        double price = lastPriceTable.getPrice(key, maxPriceAgeMillis);
+        if (Double.isNaN(price)) {
+            Quote quote = quotes != null ? quotes.get(key) : stockService.getQuote(symbol);
+            // when throttled the quote service falls back to the last known quote, which may be old
+            if (quote == null || quote.getClose() <= 0
+                    || System.currentTimeMillis() - quote.getFetchedAt() > maxPriceAgeMillis) {
+                throw new RuntimeException("No current price for " + symbol + ", please try again shortly");
+            }
+            price = quote.getClose();
+        }
+        if (expectedPrice != null && Math.abs(price - expectedPrice) > expectedPrice * maxPriceDeviation) {
+            throw new RuntimeException(String.format(
+                    "Price of %s has moved to %.2f, please review your order", symbol, price));
+        }
+        return price;
     }
 
-    public List<Transaction> getUserTransactions() {
-        return transactionRepository.findByUserIdOrderByTimestampDesc(getCurrentUser().getId());
+    public TradingStats getTradingStats() {
+        return tradeExecutor.getStats();
     }
 
     private User getCurrentUser() {
         return (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package com.example.backend.service;
+
+import com.example.backend.cache.TtlCache;
+import com.example.backend.model.User;
+import com.example.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Short-lived cache of authenticated users by email, so the JWT filter does not query the
+ * database on every request. Callers get their own copy of the cached user, since services
+ * modify and save the principal. Anything that changes a user's balance or role must call
+ * {@link #invalidate(String)}.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserPrincipalCache {
+    private final UserRepository userRepository;
+
+    @Value("${stocks.auth.principal-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${stocks.auth.principal-cache.max-size:1000}")
+    private int maxSize;
+
+    private TtlCache<String, User> users;
+
+    @PostConstruct
+    public void initCache() {
+        users = new TtlCache<>("user_principal", ttlSeconds * 1000, maxSize);
+    }
+
+    public User get(String email) {
+        User user = users.get(email, () -> userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found")));
+        return copy(user);
+    }
+
+    /**
+     * Drops the cached user now and, if a transaction is active, again once it commits so a
+     * concurrent request cannot re-cache the pre-commit row.
+     */
+    public void invalidate(String email) {
+        users.invalidate(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    users.invalidate(email);
+                }
+            });
+        }
+    }
+
+    private static User copy(User user) {
+        return User.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .mobileNo(user.getMobileNo())
+                .balance(user.getBalance())
+                .role(user.getRole())
+                .version(user.getVersion())
+                .build();
+    }
+}
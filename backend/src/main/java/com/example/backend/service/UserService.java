@@ -3,17 +3,18 @@ package com.example.backend.service;
 import com.example.backend.dto.UserDTO;
 import com.example.backend.model.User;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.trading.TradeExecutor;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final TradeExecutor tradeExecutor;
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private User getCurrentUser() {
@@ -38,7 +39,6 @@ public class UserService {
                 .build();
     }
 
-    @Transactional
     public User topUpBalance(double amount) {
         log.info("Attempting to top up balance by: {}", amount);
         if (amount <= 0) {
@@ -48,8 +48,7 @@ public class UserService {
 
         User user = getCurrentUser();
         log.info("Current user: {}", user.getEmail());
-        user.setBalance(user.getBalance() + amount);
-        User savedUser = userRepository.save(user);
+        User savedUser = tradeExecutor.deposit(user, amount);
         log.info("Balance updated successfully. New balance: {}", savedUser.getBalance());
         return savedUser;
     }
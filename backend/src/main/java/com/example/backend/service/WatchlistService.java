@@ -1,23 +1,73 @@
 package com.example.backend.service;
 
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.WatchlistChange;
+import com.example.backend.dto.WatchlistQuote;
+import com.example.backend.dto.WatchlistView;
 import com.example.backend.model.User;
 import com.example.backend.model.WatchList;
+import com.example.backend.model.WatchListSymbol;
 import com.example.backend.repository.WatchListRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.backend.repository.WatchListSymbolRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Watchlists and their symbols. Symbols are stored one row per symbol with a position, so
+ * adding or removing symbols touches only those rows and reordering rewrites only the
+ * positions that change.
+ */
 @Service
-@RequiredArgsConstructor
 public class WatchlistService {
     private final WatchListRepository watchListRepository;
+    private final WatchListSymbolRepository watchListSymbolRepository;
+    private final QuoteStreamService quoteStreamService;
+    private final StockService stockService;
+    private final AsyncTaskExecutor marketDataExecutor;
+    private final int maxSymbolsPerRequest;
+    private final long viewDeadlineMillis;
     private static final Logger log = LoggerFactory.getLogger(WatchlistService.class);
 
+    public WatchlistService(
+            WatchListRepository watchListRepository,
+            WatchListSymbolRepository watchListSymbolRepository,
+            QuoteStreamService quoteStreamService,
+            StockService stockService,
+            @Qualifier("marketDataExecutor") AsyncTaskExecutor marketDataExecutor,
+            @Value("${stocks.watchlists.max-symbols-per-request:500}") int maxSymbolsPerRequest,
+            @Value("${stocks.watchlists.view.deadline-ms:1500}") long viewDeadlineMillis) {
+        this.watchListRepository = watchListRepository;
+        this.watchListSymbolRepository = watchListSymbolRepository;
+        this.quoteStreamService = quoteStreamService;
+        this.stockService = stockService;
+        this.marketDataExecutor = marketDataExecutor;
+        this.maxSymbolsPerRequest = maxSymbolsPerRequest;
+        this.viewDeadlineMillis = viewDeadlineMillis;
+    }
+
     private User getCurrentUser() {
         try {
             var auth = SecurityContextHolder.getContext().getAuthentication();
@@ -36,7 +86,18 @@ public class WatchlistService {
         if (currentUser == null) {
             throw new RuntimeException("Authentication required to fetch watchlists");
         }
-        return watchListRepository.findByUserId(currentUser.getId());
+        List<WatchList> watchlists = watchListRepository.findByUserIdOrderByIdAsc(currentUser.getId());
+        if (watchlists.isEmpty()) {
+            return watchlists;
+        }
+        Map<Long, WatchList> byId = new HashMap<>();
+        watchlists.forEach(watchlist -> {
+            watchlist.setStockSymbols(new ArrayList<>());
+            byId.put(watchlist.getId(), watchlist);
+        });
+        watchListSymbolRepository.findByWatchListIdInOrderByWatchListIdAscPositionAsc(byId.keySet())
+                .forEach(row -> byId.get(row.getWatchListId()).getStockSymbols().add(row.getSymbol()));
+        return watchlists;
     }
 
     public WatchList getWatchlistById(Long id) {
@@ -53,40 +114,187 @@ public class WatchlistService {
             throw new RuntimeException("You can only access your own watchlists");
         }
         
+        watchlist.setStockSymbols(symbolsOf(id));
         return watchlist;
     }
 
+    /**
+     * Returns the watchlist with a quote for every symbol. Fresh cached quotes are used as is; the
+     * rest are fetched in one {@link StockService#getQuotes} call, which batches them by
+     * {@code stocks.quote.batch-size}. Whatever has not arrived after
+     * {@code stocks.watchlists.view.deadline-ms} is answered with the last known quote marked
+     * stale, and the fetch carries on in the background so a later call finds it cached.
+     */
+    public WatchlistView getWatchlistView(Long id) {
+        WatchList watchlist = getWatchlistById(id);
+        List<String> symbols = watchlist.getStockSymbols();
+
+        Map<String, Quote> fresh = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        collectFresh(symbols, fresh, missing);
+
+        if (!missing.isEmpty()) {
+            CompletableFuture<Map<String, Quote>> fetch =
+                    CompletableFuture.supplyAsync(() -> stockService.getQuotes(missing), marketDataExecutor);
+            try {
+                fresh.putAll(fetch.get(viewDeadlineMillis, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                log.warn("Quotes for watchlist {} missed the {} ms deadline, serving partial results", id, viewDeadlineMillis);
+                // batches that did arrive are already cached
+                collectFresh(missing, fresh, new ArrayList<>());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Error fetching quotes for watchlist {}: ", id, e.getCause());
+            }
+        }
+
+        List<WatchlistQuote> quotes = new ArrayList<>(symbols.size());
+        boolean complete = true;
+        for (String symbol : symbols) {
+            Quote quote = fresh.get(symbol);
+            // a quote the provider answered from its stale fallback is not current either
+            boolean stale = quote == null || !stockService.isFresh(quote);
+            if (quote == null) {
+                quote = stockService.getLastKnownQuote(symbol);
+            }
+            if (stale) {
+                complete = false;
+            }
+            quotes.add(WatchlistQuote.builder().symbol(symbol).quote(quote).stale(stale).build());
+        }
+        return WatchlistView.builder()
+                .id(watchlist.getId())
+                .name(watchlist.getName())
+                .quotes(quotes)
+                .complete(complete)
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void collectFresh(List<String> symbols, Map<String, Quote> fresh, List<String> missing) {
+        for (String symbol : symbols) {
+            Quote cached = stockService.getCachedQuote(symbol);
+            if (cached != null && stockService.isFresh(cached)) {
+                fresh.put(symbol, cached);
+            } else {
+                missing.add(symbol);
+            }
+        }
+    }
+
+    @Transactional
     public WatchList createWatchlist(WatchList watchlist) {
         User currentUser = getCurrentUser();
         if (currentUser == null) {
             throw new RuntimeException("Authentication required to create watchlist");
         }
+        List<String> symbols = normalize(watchlist.getStockSymbols() == null ? List.of() : watchlist.getStockSymbols());
         watchlist.setUser(currentUser);
-        if (watchlist.getStockSymbols() == null) {
-            watchlist.setStockSymbols(new ArrayList<>());
+        WatchList saved = watchListRepository.save(watchlist);
+
+        List<WatchListSymbol> rows = new ArrayList<>(symbols.size());
+        for (int i = 0; i < symbols.size(); i++) {
+            rows.add(WatchListSymbol.builder().watchListId(saved.getId()).symbol(symbols.get(i)).position(i + 1).build());
         }
-        return watchListRepository.save(watchlist);
+        watchListSymbolRepository.saveAll(rows);
+        saved.setStockSymbols(new ArrayList<>(symbols));
+        return saved;
     }
 
-    public WatchList addStockToWatchlist(Long watchlistId, String symbol) {
-        WatchList watchlist = watchListRepository.findById(watchlistId)
-                .orElseThrow(() -> new RuntimeException("Watchlist not found"));
+    public WatchlistChange addStockToWatchlist(Long watchlistId, String symbol) {
+        return addStocks(watchlistId, List.of(symbol));
+    }
 
-        if (!watchlist.getStockSymbols().contains(symbol)) {
-            watchlist.getStockSymbols().add(symbol);
-            return watchListRepository.save(watchlist);
+    public WatchlistChange removeStockFromWatchlist(Long watchlistId, String symbol) {
+        return removeStocks(watchlistId, List.of(symbol));
+    }
+
+    /**
+     * Appends the symbols that are not already on the watchlist, in the given order. Each new
+     * symbol is one insert; existing rows are not touched. The watchlist row is locked first so
+     * concurrent edits assign positions one after the other.
+     */
+    @Transactional
+    public WatchlistChange addStocks(Long watchlistId, List<String> symbols) {
+        requireOwned(watchlistId);
+        // concurrent adds would otherwise read the same max position
+        watchListRepository.findByIdForUpdate(watchlistId);
+        List<String> requested = normalize(symbols);
+        Set<String> present = new HashSet<>();
+        if (!requested.isEmpty()) {
+            watchListSymbolRepository.findByWatchListIdAndSymbolIn(watchlistId, requested)
+                    .forEach(row -> present.add(row.getSymbol()));
         }
-        return watchlist;
+
+        List<String> added = new ArrayList<>();
+        List<WatchListSymbol> rows = new ArrayList<>();
+        long position = requested.size() > present.size() ? watchListSymbolRepository.findMaxPosition(watchlistId) : 0;
+        for (String symbol : requested) {
+            if (!present.contains(symbol)) {
+                rows.add(WatchListSymbol.builder().watchListId(watchlistId).symbol(symbol).position(++position).build());
+                added.add(symbol);
+            }
+        }
+        watchListSymbolRepository.saveAll(rows);
+        afterCommit(() -> quoteStreamService.changeWatchlistSymbols(watchlistId, added, List.of()));
+        return WatchlistChange.builder().watchlistId(watchlistId).added(added).removed(List.of()).build();
     }
 
-    public WatchList removeStockFromWatchlist(Long watchlistId, String symbol) {
-        WatchList watchlist = watchListRepository.findById(watchlistId)
-                .orElseThrow(() -> new RuntimeException("Watchlist not found"));
+    /**
+     * Removes the given symbols from the watchlist with a single delete.
+     */
+    @Transactional
+    public WatchlistChange removeStocks(Long watchlistId, List<String> symbols) {
+        requireOwned(watchlistId);
+        List<String> requested = normalize(symbols);
+        List<String> removed = new ArrayList<>();
+        if (!requested.isEmpty()) {
+            watchListSymbolRepository.findByWatchListIdAndSymbolIn(watchlistId, requested)
+                    .forEach(row -> removed.add(row.getSymbol()));
+            watchListSymbolRepository.deleteSymbols(watchlistId, requested);
+        }
+        afterCommit(() -> quoteStreamService.changeWatchlistSymbols(watchlistId, List.of(), removed));
+        return WatchlistChange.builder().watchlistId(watchlistId).added(List.of()).removed(removed).build();
+    }
 
-        watchlist.getStockSymbols().remove(symbol);
-        return watchListRepository.save(watchlist);
+    /**
+     * Moves the given symbols to the top of the watchlist in the given order; the remaining
+     * symbols follow in their current order. Only rows whose position changes are updated.
+     */
+    @Transactional
+    public List<String> reorderStocks(Long watchlistId, List<String> symbols) {
+        requireOwned(watchlistId);
+        watchListRepository.findByIdForUpdate(watchlistId);
+        List<WatchListSymbol> rows = watchListSymbolRepository.findByWatchListIdOrderByPositionAsc(watchlistId);
+        Map<String, WatchListSymbol> bySymbol = new LinkedHashMap<>();
+        rows.forEach(row -> bySymbol.put(row.getSymbol(), row));
+
+        List<WatchListSymbol> ordered = new ArrayList<>(rows.size());
+        for (String symbol : normalize(symbols)) {
+            WatchListSymbol row = bySymbol.remove(symbol);
+            if (row == null) {
+                throw new RuntimeException("Symbol " + symbol + " is not on this watchlist");
+            }
+            ordered.add(row);
+        }
+        ordered.addAll(bySymbol.values());
+
+        List<WatchListSymbol> moved = new ArrayList<>();
+        List<String> result = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            WatchListSymbol row = ordered.get(i);
+            if (row.getPosition() != i + 1) {
+                row.setPosition(i + 1);
+                moved.add(row);
+            }
+            result.add(row.getSymbol());
+        }
+        watchListSymbolRepository.saveAll(moved);
+        return result;
     }
 
+    @Transactional
     public void deleteWatchlist(Long id) {
         User currentUser = getCurrentUser();
         if (currentUser == null) {
@@ -101,6 +309,63 @@ public class WatchlistService {
             throw new RuntimeException("You can only delete your own watchlists");
         }
         
+        watchListSymbolRepository.deleteByWatchListId(id);
         watchListRepository.deleteById(id);
+        afterCommit(() -> quoteStreamService.closeWatchlistSubscriptions(id));
+    }
+
+    /**
+     * Runs the action once the current transaction has committed, so open streams only hear of
+     * changes that are durable and never hold the transaction open while writing to clients.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void requireOwned(Long watchlistId) {
+        User currentUser = getCurrentUser();
+        if (currentUser == null) {
+            throw new RuntimeException("Authentication required to modify watchlist");
+        }
+        if (!watchListRepository.existsByIdAndUserId(watchlistId, currentUser.getId())) {
+            throw new RuntimeException("Watchlist not found");
+        }
+    }
+
+    private List<String> symbolsOf(Long watchlistId) {
+        List<String> symbols = new ArrayList<>();
+        watchListSymbolRepository.findByWatchListIdOrderByPositionAsc(watchlistId)
+                .forEach(row -> symbols.add(row.getSymbol()));
+        return symbols;
+    }
+
+    /**
+     * Trims and upper-cases the symbols and drops blanks and duplicates, keeping the first
+     * occurrence, so the unique (watchlist, symbol) index is never hit by a request.
+     */
+    private List<String> normalize(Collection<String> symbols) {
+        if (symbols.size() > maxSymbolsPerRequest) {
+            throw new RuntimeException("At most " + maxSymbolsPerRequest + " symbols per request");
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol == null) {
+                continue;
+            }
+            String normalized = symbol.trim().toUpperCase();
+            if (!normalized.isEmpty()) {
+                result.add(normalized);
+            }
+        }
+        return new ArrayList<>(result);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,241 @@
+package com.example.backend.timeseries;
+
+import com.example.backend.dto.Bar;
+import com.example.backend.dto.TimeSeries;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OHLCV bars for one symbol and interval, stored oldest first in parallel primitive arrays.
+ * Bar times are the provider's exchange-local timestamps stored as epoch seconds at UTC, so
+ * they format back to exactly the strings the provider sent.
+ */
+public class BarSeries {
+    static final int BYTES_PER_BAR = Long.BYTES * 2 + Double.BYTES * 4;
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String symbol;
+    private final String interval;
+    private final boolean dailyOrLonger;
+    private final int maxBars;
+    // serialises upstream refreshes so only one caller fetches the tail at a time
+    final ReentrantLock refreshLock = new ReentrantLock();
+
+    // guarded by "this"
+    private long[] times = new long[64];
+    private double[] open = new double[64];
+    private double[] high = new double[64];
+    private double[] low = new double[64];
+    private double[] close = new double[64];
+    private long[] volume = new long[64];
+    private int size;
+    private Map<String, Object> meta;
+
+    private volatile long lastFetchedAt;
+    private volatile long lastReadAt;
+
+    public BarSeries(String symbol, String interval, int maxBars) {
+        this.symbol = symbol;
+        this.interval = interval;
+        this.maxBars = maxBars;
+        this.dailyOrLonger = interval.endsWith("day") || interval.endsWith("week") || interval.endsWith("month");
+        this.meta = new LinkedHashMap<>(Map.of("symbol", symbol, "interval", interval));
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public long getLastFetchedAt() {
+        return lastFetchedAt;
+    }
+
+    public void markFetched(long now) {
+        lastFetchedAt = now;
+    }
+
+    public long getLastReadAt() {
+        return lastReadAt;
+    }
+
+    public void markRead(long now) {
+        lastReadAt = now;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the provider-formatted timestamp of the newest bar, or null if the series is empty.
+     */
+    public synchronized String lastDatetime() {
+        return size == 0 ? null : format(times[size - 1]);
+    }
+
+    public synchronized void setMeta(Map<String, Object> meta) {
+        if (meta != null) {
+            this.meta = new LinkedHashMap<>(meta);
+        }
+    }
+
+    /**
+     * Merges bars parsed from a provider response. Incoming bars replace every stored bar at or after
+     * the oldest incoming timestamp, since the newest stored bar may have been incomplete.
+     */
+    public synchronized void merge(List<Bar> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        int n = values.size();
+        long[] t = new long[n];
+        double[] o = new double[n];
+        double[] h = new double[n];
+        double[] l = new double[n];
+        double[] c = new double[n];
+        long[] v = new long[n];
+        for (int i = 0; i < n; i++) {
+            Bar bar = values.get(i);
+            t[i] = parse(bar.getDatetime());
+            o[i] = bar.getOpen();
+            h[i] = bar.getHigh();
+            l[i] = bar.getLow();
+            c[i] = bar.getClose();
+            v[i] = bar.getVolume();
+        }
+        // Providers return newest first
+        if (n > 1 && t[0] > t[n - 1]) {
+            reverse(t); reverse(o); reverse(h); reverse(l); reverse(c); reverse(v);
+        }
+
+        int keep = Arrays.binarySearch(times, 0, size, t[0]);
+        size = keep >= 0 ? keep : -keep - 1;
+        ensureCapacity(size + n);
+        System.arraycopy(t, 0, times, size, n);
+        System.arraycopy(o, 0, open, size, n);
+        System.arraycopy(h, 0, high, size, n);
+        System.arraycopy(l, 0, low, size, n);
+        System.arraycopy(c, 0, close, size, n);
+        System.arraycopy(v, 0, volume, size, n);
+        size += n;
+
+        if (size > maxBars) {
+            dropOldest(size - maxBars);
+        }
+    }
+
+    /**
+     * Drops every stored bar, for a refresh whose bars do not reach back to the stored ones.
+     */
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    /**
+     * Builds a response in the provider's time_series shape with the newest {@code window} bars, newest first.
+     */
+    public synchronized TimeSeries toResponse(int window) {
+        int count = Math.min(window, size);
+        List<Bar> values = new ArrayList<>(count);
+        for (int i = size - 1; i >= size - count; i--) {
+            values.add(new Bar(format(times[i]), open[i], high[i], low[i], close[i], volume[i]));
+        }
+        return TimeSeries.builder()
+                .meta(meta)
+                .values(values)
+                .status("ok")
+                .build();
+    }
+
+    synchronized void writeTo(ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putLong(times[i]);
+            buffer.putDouble(open[i]);
+            buffer.putDouble(high[i]);
+            buffer.putDouble(low[i]);
+            buffer.putDouble(close[i]);
+            buffer.putLong(volume[i]);
+        }
+    }
+
+    synchronized void readFrom(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            times[i] = buffer.getLong();
+            open[i] = buffer.getDouble();
+            high[i] = buffer.getDouble();
+            low[i] = buffer.getDouble();
+            close[i] = buffer.getDouble();
+            volume[i] = buffer.getLong();
+        }
+        size = count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= times.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, times.length * 2);
+        times = Arrays.copyOf(times, newCapacity);
+        open = Arrays.copyOf(open, newCapacity);
+        high = Arrays.copyOf(high, newCapacity);
+        low = Arrays.copyOf(low, newCapacity);
+        close = Arrays.copyOf(close, newCapacity);
+        volume = Arrays.copyOf(volume, newCapacity);
+    }
+
+    private void dropOldest(int count) {
+        int remaining = size - count;
+        System.arraycopy(times, count, times, 0, remaining);
+        System.arraycopy(open, count, open, 0, remaining);
+        System.arraycopy(high, count, high, 0, remaining);
+        System.arraycopy(low, count, low, 0, remaining);
+        System.arraycopy(close, count, close, 0, remaining);
+        System.arraycopy(volume, count, volume, 0, remaining);
+        size = remaining;
+    }
+
+    private long parse(String datetime) {
+        if (datetime.length() <= 10) {
+            return LocalDate.parse(datetime).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        }
+        return LocalDateTime.parse(datetime, DATE_TIME).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private String format(long epochSecond) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+        return dailyOrLonger ? dateTime.toLocalDate().toString() : dateTime.format(DATE_TIME);
+    }
+
+    private static void reverse(long[] a) {
+        for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+            long tmp = a[i]; a[i] = a[j]; a[j] = tmp;
+        }
+    }
+
+    private static void reverse(double[] a) {
+        for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+            double tmp = a[i]; a[i] = a[j]; a[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.backend.timeseries;
+
+import com.example.backend.dto.TimeSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Local store of OHLC bars per symbol and interval. Chart requests are served from memory; the
+ * upstream is only asked for bars newer than the last stored one, and at most once per bar
+ * interval. When {@code stocks.bars.directory} is set, each series is also written to a
+ * memory-mapped file and read back on first use after a restart.
+ * <p>
+ * Only the provider's intervals are accepted, a series is kept only once the provider returned
+ * bars for it, and at most {@code stocks.bars.max-series} series are held in memory; the least
+ * recently read one is dropped first and read back from its file when needed again.
+ */
+@Component
+public class BarStore {
+    private static final Logger log = LoggerFactory.getLogger(BarStore.class);
+    private static final int FILE_MAGIC = 0x4241_5231; // "BAR1"
+    // the provider's largest outputsize
+    private static final int MAX_OUTPUT_SIZE = 5000;
+    private static final Set<String> INTERVALS = Set.of(
+            "1min", "5min", "15min", "30min", "45min", "1h", "2h", "4h", "1day", "1week", "1month");
+
+    private final Map<String, BarSeries> series = new ConcurrentHashMap<>();
+    private final Path directory;
+    private final int maxBars;
+    private final int maxSeries;
+    private final long minRefreshMillis;
+
+    public BarStore(
+            @Value("${stocks.bars.directory:}") String directory,
+            @Value("${stocks.bars.max-bars:5000}") int maxBars,
+            @Value("${stocks.bars.max-series:1000}") int maxSeries,
+            @Value("${stocks.bars.min-refresh-ms:60000}") long minRefreshMillis) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.maxBars = maxBars;
+        this.maxSeries = maxSeries;
+        this.minRefreshMillis = minRefreshMillis;
+    }
+
+    /**
+     * Returns the newest {@code window} bars for the symbol and interval. If the series has not been
+     * refreshed within one bar interval, the fetcher is called with the provider timestamp of the
+     * newest stored bar (or null when nothing is stored yet) and the number of bars to request,
+     * and must return the provider's time_series response. A tail request asks for as many bars
+     * as the store keeps, so one request closes any gap since the last refresh. If the refresh
+     * fails, stored bars are served instead.
+     */
+    public TimeSeries getBars(String symbol, String interval, int window,
+                              BiFunction<String, Integer, TimeSeries> fetcher) {
+        if (!INTERVALS.contains(interval)) {
+            throw new RuntimeException("Unsupported interval: " + interval);
+        }
+        String key = symbol + ":" + interval;
+        BarSeries bars = series.computeIfAbsent(key, k -> load(symbol, interval));
+        long now = System.currentTimeMillis();
+        bars.markRead(now);
+        if (series.size() > maxSeries) {
+            evictLeastRecentlyRead();
+        }
+        if (now - bars.getLastFetchedAt() < refreshMillis(interval)) {
+            return bars.toResponse(window);
+        }
+
+        // Another caller is already fetching the tail; serve what we have unless we have nothing
+        if (!bars.refreshLock.tryLock()) {
+            if (!bars.isEmpty()) {
+                return bars.toResponse(window);
+            }
+            bars.refreshLock.lock();
+        }
+        try {
+            if (System.currentTimeMillis() - bars.getLastFetchedAt() >= refreshMillis(interval)) {
+                TimeSeries response = refresh(bars, window, fetcher);
+                if (response != null && bars.isEmpty()) {
+                    // Pass provider errors (e.g. unknown symbol) through unchanged
+                    return response;
+                }
+            }
+        } finally {
+            bars.refreshLock.unlock();
+            if (bars.isEmpty()) {
+                // keep no series for symbols the provider has no bars for
+                series.remove(key, bars);
+            }
+        }
+        return bars.toResponse(window);
+    }
+
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    private TimeSeries refresh(BarSeries bars, int window, BiFunction<String, Integer, TimeSeries> fetcher) {
+        String lastDatetime = bars.lastDatetime();
+        int outputSize = lastDatetime == null ? window : Math.min(maxBars, MAX_OUTPUT_SIZE);
+        TimeSeries response;
+        try {
+            response = fetcher.apply(lastDatetime, outputSize);
+        } catch (RuntimeException e) {
+            if (bars.isEmpty()) {
+                throw e;
+            }
+            log.warn("Refresh of {} {} bars failed, serving stored bars: {}",
+                    bars.getSymbol(), bars.getInterval(), e.getMessage());
+            return null;
+        }
+        if (response == null) {
+            return null;
+        }
+        boolean hasValues = response.getValues() != null;
+        if (hasValues) {
+            if (lastDatetime != null && response.getValues().size() >= outputSize) {
+                // a full page may not reach back to the newest stored bar; drop the stored bars rather than keep a gap
+                bars.clear();
+            }
+            bars.setMeta(response.getMeta());
+            bars.merge(response.getValues());
+            save(bars);
+        }
+        // A tail request with no new bars comes back as an error; still counts as up to date
+        if (hasValues || !bars.isEmpty()) {
+            bars.markFetched(System.currentTimeMillis());
+        }
+        return response;
+    }
+
+    private void evictLeastRecentlyRead() {
+        Map.Entry<String, BarSeries> oldest = null;
+        for (Map.Entry<String, BarSeries> entry : series.entrySet()) {
+            if (oldest == null || entry.getValue().getLastReadAt() < oldest.getValue().getLastReadAt()) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            series.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private long refreshMillis(String interval) {
+        return Math.max(minRefreshMillis, intervalMillis(interval));
+    }
+
+    static long intervalMillis(String interval) {
+        int split = 0;
+        while (split < interval.length() && Character.isDigit(interval.charAt(split))) {
+            split++;
+        }
+        long amount = split == 0 ? 1 : Long.parseLong(interval.substring(0, split));
+        long unit = switch (interval.substring(split)) {
+            case "min" -> 60_000L;
+            case "h" -> 3_600_000L;
+            case "day" -> 86_400_000L;
+            case "week" -> 7 * 86_400_000L;
+            case "month" -> 30 * 86_400_000L;
+            default -> 60_000L;
+        };
+        return amount * unit;
+    }
+
+    private BarSeries load(String symbol, String interval) {
+        BarSeries bars = new BarSeries(symbol, interval, maxBars);
+        Path file = file(symbol, interval);
+        if (file == null || !Files.exists(file)) {
+            return bars;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() == FILE_MAGIC) {
+                bars.readFrom(buffer);
+                log.info("Loaded {} {} bars for {} from {}", bars.size(), interval, symbol, file);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable bar file {}: {}", file, e.getMessage());
+        }
+        return bars;
+    }
+
+    private void save(BarSeries bars) {
+        Path file = file(bars.getSymbol(), bars.getInterval());
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            long length = Integer.BYTES * 2L + (long) bars.size() * BarSeries.BYTES_PER_BAR;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buffer.putInt(FILE_MAGIC);
+                bars.writeTo(buffer);
+                buffer.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error writing bar file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path file(String symbol, String interval) {
+        if (directory == null) {
+            return null;
+        }
+        return directory.resolve(safe(symbol) + "_" + safe(interval) + ".bars");
+    }
+
+    private static String safe(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_").replace("..", "_");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.backend.trading;
+
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A trade or deposit that the engine has applied to an account, with the account's balance
+ * and position as they stood right after it. Positions are written as absolute values, so
+ * only the newest trade per position in a batch matters.
+ */
+final class ExecutedTrade {
+    static final String BUY = "BUY";
+    static final String SELL = "SELL";
+    static final String DEPOSIT = "DEPOSIT";
+
+    final long userId;
+    final String type;
+    // null for deposits
+    final String symbol;
+    final double quantity;
+    final double price;
+    final double total;
+    final double balanceAfter;
+    final double quantityAfter;
+    final double averagePriceAfter;
+    final LocalDateTime timestamp;
+    // incarnation of the engine's copy of the account the trade was applied to; 0 for replayed trades
+    final long epoch;
+    // the requesting user and the caller's reply; both null for trades replayed from the journal
+    final User user;
+    final CompletableFuture<Object> reply;
+    // assigned by the journal writer
+    long sequence;
+
+    ExecutedTrade(long userId, String type, String symbol, double quantity, double price, double total,
+                  double balanceAfter, double quantityAfter, double averagePriceAfter,
+                  LocalDateTime timestamp, long epoch, User user, CompletableFuture<Object> reply) {
+        this.userId = userId;
+        this.type = type;
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.price = price;
+        this.total = total;
+        this.balanceAfter = balanceAfter;
+        this.quantityAfter = quantityAfter;
+        this.averagePriceAfter = averagePriceAfter;
+        this.timestamp = timestamp;
+        this.epoch = epoch;
+        this.user = user;
+        this.reply = reply;
+    }
+
+    /**
+     * Builds the caller's reply: the user with its new balance for deposits, otherwise the
+     * transaction. The transaction has no id until the persister has written it.
+     */
+    Object result() {
+        user.setBalance(balanceAfter);
+        if (symbol == null) {
+            return user;
+        }
+        return Transaction.builder()
+                .user(user)
+                .stockSymbol(symbol)
+                .quantity(quantity)
+                .price(price)
+                .type(type)
+                .timestamp(timestamp)
+                .total(total)
+                .build();
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.backend.trading;
+
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.dto.TradingStats;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.JournalCheckpointRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.HoldingsService;
+import com.example.backend.service.UserPrincipalCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory execution engine for buys, sells and deposits. Accounts are partitioned across shards
+ * by user id and each shard is a single thread that owns its accounts outright, so an order is
+ * validated and applied without locks and two orders for the same account can never interleave.
+ * Request threads hand orders to a shard through a lock-free queue and wait for the result.
+ * Applied trades are made durable in the {@link TradeJournal} before the caller is answered, and
+ * are written to the database in batches afterwards by a {@link TradePersister}.
+ * <p>
+ * An account is loaded from the database the first time its shard sees it, after which the
+ * engine's copy is authoritative. While the engine is active it must be the only writer of
+ * balances and holdings. Reads of holdings and history go to the database, which can trail an
+ * acknowledged trade by one persister batch; readers that need every acknowledged trade call
+ * {@link #awaitPersisted(Long)} first.
+ */
+@Component
+@ConditionalOnProperty(name = "stocks.trading.mode", havingValue = "engine")
+// journal replay inserts transactions, so the id sequence must be aligned first
+@DependsOn("transactionSequenceInitializer")
+public class ExecutionEngine implements TradeExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionEngine.class);
+    private static final double BROKERAGE_RATE = 0.03;
+
+    private enum OrderType { BUY, SELL, DEPOSIT, BATCH, RELOAD }
+
+    private final UserRepository userRepository;
+    private final HoldingsRepository holdingsRepository;
+    private final TradePersister persister;
+    private final TradeJournal journal;
+    private final Shard[] shards;
+    private final int maxBatch;
+    private final long persistWaitMillis;
+
+    private final AtomicLong epochs = new AtomicLong();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ExecutionEngine(
+            UserRepository userRepository,
+            HoldingsRepository holdingsRepository,
+            TransactionRepository transactionRepository,
+            JournalCheckpointRepository checkpointRepository,
+            UserPrincipalCache userPrincipalCache,
+            HoldingsService holdingsService,
+            TransactionTemplate transactionTemplate,
+            @Value("${stocks.trading.engine.shards:4}") int shardCount,
+            @Value("${stocks.trading.engine.max-batch:500}") int maxBatch,
+            @Value("${stocks.trading.engine.persist-wait-ms:5000}") long persistWaitMillis,
+            @Value("${stocks.trading.journal.directory:./data/journal}") String journalDirectory,
+            @Value("${stocks.trading.journal.segment-bytes:67108864}") long segmentBytes) {
+        this.userRepository = userRepository;
+        this.holdingsRepository = holdingsRepository;
+        this.maxBatch = maxBatch;
+        this.persistWaitMillis = persistWaitMillis;
+        this.persister = new TradePersister(userRepository, holdingsRepository, transactionRepository,
+                checkpointRepository, userPrincipalCache, holdingsService, transactionTemplate, this::checkpointed, maxBatch);
+        this.journal = new TradeJournal(Path.of(journalDirectory), segmentBytes, maxBatch, persister, this::reload);
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            journal.open(persister.checkpoint(), persister::persistNow);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the trade journal", e);
+        }
+        persister.start();
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Execution engine started with {} shards", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        journal.stop();
+        persister.stop();
+    }
+
+    @Override
+    public Transaction buy(User user, String symbol, double quantity, double price) {
+        return (Transaction) execute(new Order(OrderType.BUY, user, symbol, quantity, price));
+    }
+
+    @Override
+    public Transaction sell(User user, String symbol, double quantity, double price) {
+        return (Transaction) execute(new Order(OrderType.SELL, user, symbol, quantity, price));
+    }
+
+    @Override
+    public User deposit(User user, double amount) {
+        return (User) execute(new Order(OrderType.DEPOSIT, user, null, 0, amount));
+    }
+
+    /**
+     * Applies all orders on the account's shard in one step: either every order is applied and
+     * journaled together, or none is.
+     */
+    @Override
+    public List<Transaction> executeBatch(User user, List<OrderRequest> orders) {
+        List<Order> legs = new ArrayList<>(orders.size());
+        for (OrderRequest request : orders) {
+            OrderType type = ExecutedTrade.SELL.equalsIgnoreCase(request.getType()) ? OrderType.SELL : OrderType.BUY;
+            legs.add(new Order(type, user, request.getSymbol(), request.getQuantity(), request.getPrice()));
+        }
+        Order batch = new Order(OrderType.BATCH, user, null, 0, 0);
+        batch.legs = legs;
+        shardFor(batch.userId).submit(batch);
+
+        List<Transaction> transactions = new ArrayList<>(legs.size());
+        for (Order leg : legs) {
+            transactions.add((Transaction) await(leg));
+        }
+        return transactions;
+    }
+
+    @Override
+    public TradingStats getStats() {
+        // Each account has a single writer, so there are no retries or lock waits to report
+        return TradingStats.builder()
+                .mode("engine")
+                .concurrency("single-writer")
+                .executed(executed.sum())
+                .rejected(rejected.sum())
+                .build();
+    }
+
+    /**
+     * Waits for the persister to write the user's acknowledged trades. Callers that must read
+     * the database consistently, like portfolio valuation, use this so they never see a state
+     * that trails an acknowledged trade.
+     */
+    @Override
+    public void awaitPersisted(Long userId) {
+        try {
+            if (!journal.awaitPersisted(userId, persistWaitMillis)) {
+                throw new RuntimeException("Portfolio is being updated, please try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Portfolio is being updated, please try again shortly");
+        }
+    }
+
+    /**
+     * Drops the engine's copy of the account so the next order reloads it from the database and
+     * the journal. Called when the journal rejects a trade, after which every trade applied to the
+     * dropped copy is rejected as well.
+     */
+    public void reload(long userId) {
+        shardFor(userId).submit(new Order(OrderType.RELOAD, userId, null, null, 0, 0));
+    }
+
+    private void checkpointed(long sequence) {
+        journal.checkpointed(sequence);
+    }
+
+    private Object execute(Order order) {
+        shardFor(order.userId).submit(order);
+        return await(order);
+    }
+
+    private Object await(Order order) {
+        try {
+            return order.reply.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Trade failed", e.getCause());
+        }
+    }
+
+    private Shard shardFor(long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shards.length)];
+    }
+
+    private static final class Order {
+        private final OrderType type;
+        private final long userId;
+        private final User user;
+        private final String symbol;
+        private final double quantity;
+        // the deposit amount for deposits
+        private final double price;
+        private final CompletableFuture<Object> reply = new CompletableFuture<>();
+        // the orders of a BATCH, each with its own reply
+        private List<Order> legs;
+
+        private Order(OrderType type, User user, String symbol, double quantity, double price) {
+            this(type, user.getId(), user, symbol, quantity, price);
+        }
+
+        private Order(OrderType type, long userId, User user, String symbol, double quantity, double price) {
+            this.type = type;
+            this.userId = userId;
+            this.user = user;
+            this.symbol = TradeExecutor.normalizeSymbol(symbol);
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    private static final class Account {
+        private final long epoch;
+        private double balance;
+        private final Map<String, Position> positions = new HashMap<>();
+
+        private Account(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    private static final class Position {
+        private double quantity;
+        private double averagePrice;
+
+        private Position copy() {
+            Position copy = new Position();
+            copy.quantity = quantity;
+            copy.averagePrice = averagePrice;
+            return copy;
+        }
+    }
+
+    private final class Shard {
+        private final Queue<Order> inbox = new ConcurrentLinkedQueue<>();
+        // owned by the shard thread
+        private final Map<Long, Account> accounts = new HashMap<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Shard(int index) {
+            this.thread = new Thread(this::run, "execution-shard-" + index);
+        }
+
+        private void submit(Order order) {
+            if (!running) {
+                fail(order, new RuntimeException("Trading is shutting down"));
+                return;
+            }
+            inbox.offer(order);
+            LockSupport.unpark(thread);
+        }
+
+        private void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            List<ExecutedTrade> batch = new ArrayList<>();
+            while (running || !inbox.isEmpty()) {
+                Order order = inbox.poll();
+                if (order == null) {
+                    if (!batch.isEmpty()) {
+                        journal.append(batch);
+                        batch = new ArrayList<>();
+                    }
+                    LockSupport.park(this);
+                    continue;
+                }
+                try {
+                    apply(order, batch);
+                } catch (RuntimeException e) {
+                    rejected.increment();
+                    fail(order, e);
+                } catch (Throwable e) {
+                    // keep the shard alive: a dead shard would leave every later order for its accounts waiting forever
+                    log.error("Unexpected error applying {} order for user {}: ", order.type, order.userId, e);
+                    rejected.increment();
+                    fail(order, new RuntimeException("Trade failed", e));
+                }
+                if (batch.size() >= maxBatch) {
+                    journal.append(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                journal.append(batch);
+            }
+        }
+
+        private void apply(Order order, List<ExecutedTrade> batch) {
+            if (order.type == OrderType.RELOAD) {
+                accounts.remove(order.userId);
+                order.reply.complete(null);
+                return;
+            }
+            Account account = accounts.get(order.userId);
+            if (account == null) {
+                account = load(order.userId);
+                accounts.put(order.userId, account);
+            }
+            if (order.type == OrderType.BATCH) {
+                applyAll(account, order.legs, batch);
+                return;
+            }
+            batch.add(switch (order.type) {
+                case BUY -> buy(account, order);
+                case SELL -> sell(account, order);
+                default -> deposit(account, order);
+            });
+            executed.increment();
+        }
+
+        /**
+         * Applies the legs in order, so a sell may use shares bought earlier in the batch. If any
+         * leg is rejected the account is restored and no leg is journaled.
+         */
+        private void applyAll(Account account, List<Order> legs, List<ExecutedTrade> batch) {
+            double balance = account.balance;
+            Map<String, Position> saved = new HashMap<>();
+            for (Order leg : legs) {
+                Position position = account.positions.get(leg.symbol);
+                saved.putIfAbsent(leg.symbol, position == null ? null : position.copy());
+            }
+
+            List<ExecutedTrade> trades = new ArrayList<>(legs.size());
+            try {
+                for (Order leg : legs) {
+                    trades.add(leg.type == OrderType.SELL ? sell(account, leg) : buy(account, leg));
+                }
+            } catch (RuntimeException e) {
+                account.balance = balance;
+                saved.forEach((symbol, position) -> {
+                    if (position == null) {
+                        account.positions.remove(symbol);
+                    } else {
+                        account.positions.put(symbol, position);
+                    }
+                });
+                throw e;
+            }
+            batch.addAll(trades);
+            executed.add(trades.size());
+        }
+
+        private void fail(Order order, RuntimeException error) {
+            if (order.legs != null) {
+                order.legs.forEach(leg -> leg.reply.completeExceptionally(error));
+            }
+            order.reply.completeExceptionally(error);
+        }
+
+        private ExecutedTrade buy(Account account, Order order) {
+            requirePositive(order);
+            double total = order.quantity * order.price;
+            if (account.balance < total) {
+                throw new RuntimeException("Insufficient balance");
+            }
+            Position position = account.positions.computeIfAbsent(order.symbol, symbol -> new Position());
+            double newQuantity = position.quantity + order.quantity;
+            position.averagePrice = (position.quantity * position.averagePrice + total) / newQuantity;
+            position.quantity = newQuantity;
+            account.balance -= total;
+            return executed(order, account, position, total);
+        }
+
+        private ExecutedTrade sell(Account account, Order order) {
+            requirePositive(order);
+            Position position = account.positions.get(order.symbol);
+            if (position == null || position.quantity < order.quantity) {
+                throw new RuntimeException("Insufficient stocks to sell");
+            }
+            double total = order.quantity * order.price;
+            double netTotal = total - total * BROKERAGE_RATE;
+            position.quantity -= order.quantity;
+            if (position.quantity <= 0) {
+                account.positions.remove(order.symbol);
+                position.quantity = 0;
+                position.averagePrice = 0;
+            }
+            account.balance += netTotal;
+            return executed(order, account, position, netTotal);
+        }
+
+        private ExecutedTrade deposit(Account account, Order order) {
+            if (order.price <= 0) {
+                throw new RuntimeException("Amount must be greater than 0");
+            }
+            account.balance += order.price;
+            return new ExecutedTrade(order.userId, ExecutedTrade.DEPOSIT, null, 0, 0, order.price,
+                    account.balance, 0, 0, LocalDateTime.now(), account.epoch, order.user, order.reply);
+        }
+
+        private ExecutedTrade executed(Order order, Account account, Position position, double total) {
+            return new ExecutedTrade(order.userId, order.type.name(), order.symbol, order.quantity, order.price,
+                    total, account.balance, position.quantity, position.averagePrice, LocalDateTime.now(),
+                    account.epoch, order.user, order.reply);
+        }
+
+        private void requirePositive(Order order) {
+            if (order.quantity <= 0 || order.price <= 0) {
+                throw new RuntimeException("Quantity and price must be greater than 0");
+            }
+        }
+
+        private Account load(long userId) {
+            // read the journal first: anything it drops in the meantime has reached the database
+            TradeJournal.AccountState durable = journal.unpersistedState(userId);
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            Account account = new Account(epochs.incrementAndGet());
+            account.balance = user.getBalance();
+            holdingsRepository.findByUser(user).forEach(holdings -> {
+                if (holdings.getQuantity() > 0) {
+                    Position position = new Position();
+                    position.quantity = holdings.getQuantity();
+                    position.averagePrice = holdings.getAveragePrice();
+                    account.positions.put(holdings.getStockSymbol(), position);
+                }
+            });
+            if (durable != null) {
+                account.balance = durable.balance;
+                durable.positions.forEach((symbol, values) -> {
+                    if (values[0] > 0) {
+                        Position position = new Position();
+                        position.quantity = values[0];
+                        position.averagePrice = values[1];
+                        account.positions.put(symbol, position);
+                    } else {
+                        account.positions.remove(symbol);
+                    }
+                });
+            }
+            return account;
+        }
+    }
+}
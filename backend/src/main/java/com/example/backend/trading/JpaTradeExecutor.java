@@ -0,0 +1,285 @@
+package com.example.backend.trading;
+
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.dto.TradingStats;
+import com.example.backend.model.Holdings;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.HoldingsService;
+import com.example.backend.service.UserPrincipalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Applies each trade directly to the database in its own transaction. Concurrent updates to the
+ * same account are controlled by {@code stocks.trading.jpa.concurrency}:
+ * <ul>
+ *     <li>{@code optimistic} - users and holdings are versioned and a trade that loses a race is
+ *     retried from scratch, up to {@code stocks.trading.jpa.max-retries} times.</li>
+ *     <li>{@code pessimistic} - the user row is read with {@code SELECT ... FOR UPDATE}, which
+ *     serialises all trades for the account including its holdings.</li>
+ * </ul>
+ * Optimistic suits accounts that rarely trade concurrently; pessimistic suits hot accounts where
+ * retries would pile up. Retry and lock-wait counters are exposed through {@link #getStats()}.
+ */
+@Service
+@ConditionalOnProperty(name = "stocks.trading.mode", havingValue = "jpa", matchIfMissing = true)
+public class JpaTradeExecutor implements TradeExecutor {
+    private static final Logger log = LoggerFactory.getLogger(JpaTradeExecutor.class);
+
+    public enum Concurrency { OPTIMISTIC, PESSIMISTIC }
+
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final HoldingsRepository holdingsRepository;
+    private final HoldingsService holdingsService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Concurrency concurrency;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder optimisticRetries = new LongAdder();
+    private final LongAdder optimisticFailures = new LongAdder();
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder totalLockWaitNanos = new LongAdder();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+    public JpaTradeExecutor(
+            TransactionRepository transactionRepository,
+            UserRepository userRepository,
+            HoldingsRepository holdingsRepository,
+            HoldingsService holdingsService,
+            UserPrincipalCache userPrincipalCache,
+            TransactionTemplate transactionTemplate,
+            @Value("${stocks.trading.jpa.concurrency:optimistic}") String concurrency,
+            @Value("${stocks.trading.jpa.max-retries:5}") int maxRetries,
+            @Value("${stocks.trading.jpa.retry-backoff-ms:10}") long retryBackoffMillis) {
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.holdingsRepository = holdingsRepository;
+        this.holdingsService = holdingsService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.transactionTemplate = transactionTemplate;
+        this.concurrency = Concurrency.valueOf(concurrency.trim().toUpperCase());
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        log.info("Trades are applied directly to the database with {} concurrency control", this.concurrency);
+    }
+
+    @Override
+    public Transaction buy(User principal, String requestedSymbol, double quantity, double price) {
+        String symbol = TradeExecutor.normalizeSymbol(requestedSymbol);
+        return execute(principal, () -> {
+            User user = loadUser(principal);
+            double total = quantity * price;
+
+            if (user.getBalance() < total) {
+                throw new RuntimeException("Insufficient balance");
+            }
+
+            // Update holdings first
+            Holdings holdings = holdingsService.updateHoldings(user, symbol, quantity, price, true);
+            log.info("Updated holdings after buy - Symbol: {}, Quantity: {}, Average Price: {}",
+                    symbol, holdings.getQuantity(), holdings.getAveragePrice());
+
+            // Update user balance
+            user.setBalance(user.getBalance() - total);
+            userRepository.save(user);
+
+            // Create transaction record
+            Transaction transaction = Transaction.builder()
+                    .user(user)
+                    .stockSymbol(symbol)
+                    .quantity(quantity)
+                    .price(price)
+                    .type("BUY")
+                    .timestamp(LocalDateTime.now())
+                    .total(total)
+                    .build();
+
+            return transactionRepository.save(transaction);
+        });
+    }
+
+    @Override
+    public Transaction sell(User principal, String requestedSymbol, double quantity, double price) {
+        String symbol = TradeExecutor.normalizeSymbol(requestedSymbol);
+        return execute(principal, () -> {
+            User user = loadUser(principal);
+            double total = quantity * price;
+            double brokerage = total * 0.03;
+            double netTotal = total - brokerage;
+
+            // Update holdings first; rejects the sell if the row holds fewer shares
+            Holdings holdings = holdingsService.updateHoldings(user, symbol, quantity, price, false);
+            log.info("Updated holdings after sell - Symbol: {}, Quantity: {}, Average Price: {}",
+                    symbol, holdings.getQuantity(), holdings.getAveragePrice());
+
+            // Update user balance
+            user.setBalance(user.getBalance() + netTotal);
+            userRepository.save(user);
+
+            // Create transaction record
+            Transaction transaction = Transaction.builder()
+                    .user(user)
+                    .stockSymbol(symbol)
+                    .quantity(quantity)
+                    .price(price)
+                    .type("SELL")
+                    .timestamp(LocalDateTime.now())
+                    .total(netTotal)
+                    .build();
+
+            return transactionRepository.save(transaction);
+        });
+    }
+
+    @Override
+    public User deposit(User principal, double amount) {
+        return execute(principal, () -> {
+            User user = loadUser(principal);
+            user.setBalance(user.getBalance() + amount);
+            return userRepository.save(user);
+        });
+    }
+
+    /**
+     * Applies every order to the user's holdings in memory, then writes the changed holdings, the
+     * balance and all transactions in one transaction so the inserts go out as JDBC batches.
+     */
+    @Override
+    public List<Transaction> executeBatch(User principal, List<OrderRequest> orders) {
+        return execute(principal, () -> {
+            User user = loadUser(principal);
+            Map<String, Holdings> positions = new HashMap<>();
+            holdingsRepository.findByUser(user).forEach(holdings -> positions.put(holdings.getStockSymbol(), holdings));
+
+            List<Transaction> transactions = new ArrayList<>(orders.size());
+            for (OrderRequest order : orders) {
+                boolean isBuy = !"SELL".equalsIgnoreCase(order.getType());
+                double total = order.getQuantity() * order.getPrice();
+                String orderSymbol = TradeExecutor.normalizeSymbol(order.getSymbol());
+                Holdings holdings = positions.computeIfAbsent(orderSymbol, symbol -> Holdings.builder()
+                        .user(user)
+                        .stockSymbol(symbol)
+                        .build());
+
+                if (isBuy) {
+                    if (user.getBalance() < total) {
+                        throw new RuntimeException("Insufficient balance for " + orderSymbol);
+                    }
+                    double newTotalQuantity = holdings.getQuantity() + order.getQuantity();
+                    holdings.setAveragePrice((holdings.getQuantity() * holdings.getAveragePrice() + total) / newTotalQuantity);
+                    holdings.setQuantity(newTotalQuantity);
+                    user.setBalance(user.getBalance() - total);
+                } else {
+                    if (holdings.getQuantity() < order.getQuantity()) {
+                        throw new RuntimeException("Insufficient stocks to sell for " + orderSymbol);
+                    }
+                    total -= total * 0.03;
+                    holdings.setQuantity(holdings.getQuantity() - order.getQuantity());
+                    user.setBalance(user.getBalance() + total);
+                }
+
+                transactions.add(Transaction.builder()
+                        .user(user)
+                        .stockSymbol(orderSymbol)
+                        .quantity(order.getQuantity())
+                        .price(order.getPrice())
+                        .type(isBuy ? "BUY" : "SELL")
+                        .timestamp(LocalDateTime.now())
+                        .total(total)
+                        .build());
+            }
+
+            for (Holdings holdings : positions.values()) {
+                if (holdings.getQuantity() > 0) {
+                    holdingsRepository.save(holdings);
+                } else if (holdings.getId() != null) {
+                    holdingsRepository.delete(holdings);
+                }
+            }
+            userRepository.save(user);
+            holdingsService.invalidate(user.getId());
+            return transactionRepository.saveAll(transactions);
+        });
+    }
+
+    @Override
+    public TradingStats getStats() {
+        long acquisitions = lockAcquisitions.sum();
+        return TradingStats.builder()
+                .mode("jpa")
+                .concurrency(concurrency.name().toLowerCase())
+                .executed(executed.sum())
+                .rejected(rejected.sum())
+                .optimisticRetries(optimisticRetries.sum())
+                .optimisticFailures(optimisticFailures.sum())
+                .lockAcquisitions(acquisitions)
+                .averageLockWaitMillis(acquisitions == 0 ? 0 : totalLockWaitNanos.sum() / 1e6 / acquisitions)
+                .maxLockWaitMillis(maxLockWaitNanos.get() / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Runs the trade in a new transaction, retrying it if it lost an optimistic-lock race.
+     */
+    private <T> T execute(User principal, Supplier<T> trade) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> trade.get());
+                executed.increment();
+                userPrincipalCache.invalidate(principal.getEmail());
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt > maxRetries) {
+                    optimisticFailures.increment();
+                    rejected.increment();
+                    log.warn("Giving up on trade for {} after {} attempts: {}", principal.getEmail(), attempt, e.getMessage());
+                    throw new RuntimeException("Your account is busy, please try again");
+                }
+                optimisticRetries.increment();
+                LockSupport.parkNanos(retryBackoffMillis * attempt * 1_000_000);
+            } catch (RuntimeException e) {
+                rejected.increment();
+                throw e;
+            }
+        }
+    }
+
+    private User loadUser(User principal) {
+        if (concurrency == Concurrency.OPTIMISTIC) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        long start = System.nanoTime();
+        User user = userRepository.findByIdForUpdate(principal.getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        long waited = System.nanoTime() - start;
+        lockAcquisitions.increment();
+        totalLockWaitNanos.add(waited);
+        maxLockWaitNanos.accumulateAndGet(waited, Math::max);
+        return user;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.backend.trading;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Resting orders for one symbol, split by the direction of the price move that triggers them:
+ * <ul>
+ *     <li>at or below the order price - buy limits and sell stops, kept in a max-heap;</li>
+ *     <li>at or above the order price - sell limits and buy stops, kept in a min-heap.</li>
+ * </ul>
+ * A tick only looks at the top of each heap, so it costs O(1) when nothing triggers and
+ * O(log n) per triggered order. Cancelled orders are dropped lazily and the heaps are
+ * compacted once they hold more cancelled entries than live ones.
+ */
+final class OrderBook {
+    private final PriceHeap triggerAtOrBelow = new PriceHeap(true);
+    private final PriceHeap triggerAtOrAbove = new PriceHeap(false);
+    private final Set<Long> live = new HashSet<>();
+
+    synchronized void add(long orderId, double price, boolean triggersAtOrBelow) {
+        (triggersAtOrBelow ? triggerAtOrBelow : triggerAtOrAbove).push(price, orderId);
+        live.add(orderId);
+    }
+
+    synchronized void remove(long orderId) {
+        live.remove(orderId);
+        if (triggerAtOrBelow.size() + triggerAtOrAbove.size() > 2 * live.size() + 64) {
+            triggerAtOrBelow.retain(live::contains);
+            triggerAtOrAbove.retain(live::contains);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return live.isEmpty();
+    }
+
+    /**
+     * Removes every order triggered by the price and passes its id to the consumer.
+     */
+    synchronized void trigger(double price, LongConsumer triggered) {
+        while (!triggerAtOrBelow.isEmpty() && price <= triggerAtOrBelow.peekPrice()) {
+            emit(triggerAtOrBelow.pop(), triggered);
+        }
+        while (!triggerAtOrAbove.isEmpty() && price >= triggerAtOrAbove.peekPrice()) {
+            emit(triggerAtOrAbove.pop(), triggered);
+        }
+    }
+
+    private void emit(long orderId, LongConsumer triggered) {
+        if (live.remove(orderId)) {
+            triggered.accept(orderId);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.backend.trading;
+
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.RestingOrderRequest;
+import com.example.backend.model.RestingOrder;
+import com.example.backend.model.User;
+import com.example.backend.repository.RestingOrderRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.StockService;
+import com.example.backend.valuation.PortfolioValuationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds resting limit and stop orders and executes them when the price reaches them.
+ * <p>
+ * Open orders live in one {@link OrderBook} per symbol. Every quote fetched by
+ * {@link StockService} is checked against the book for its symbol, and symbols with open orders
+ * are polled every {@code stocks.orders.poll-interval-ms}. Triggered orders are executed at the
+ * quoted price through the regular {@link TradeExecutor} on a separate thread, so a burst of
+ * fills never holds up the price feed. An order is saved as {@code FILLING} before its trade
+ * runs, so an order whose fill was cut short by a restart is closed rather than filled again.
+ */
+@Service
+public class OrderBookService {
+    private static final Logger log = LoggerFactory.getLogger(OrderBookService.class);
+
+    static final String OPEN = "OPEN";
+    // recorded before a triggered order's trade runs, so a restart never fills it a second time
+    static final String FILLING = "FILLING";
+    static final String FILLED = "FILLED";
+    static final String CANCELLED = "CANCELLED";
+    static final String REJECTED = "REJECTED";
+
+    private final RestingOrderRepository restingOrderRepository;
+    private final UserRepository userRepository;
+    private final TradeExecutor tradeExecutor;
+    private final PortfolioValuationService portfolioValuationService;
+    private final StockService stockService;
+    private final int maxOpenOrdersPerUser;
+
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final Map<Long, RestingOrder> openOrders = new ConcurrentHashMap<>();
+    private final ExecutorService fills = Executors.newSingleThreadExecutor(r -> new Thread(r, "order-fills"));
+    // serialise order placement per user so concurrent requests cannot overrun the open-order limit
+    private final Object[] placementLocks = new Object[64];
+
+    public OrderBookService(
+            RestingOrderRepository restingOrderRepository,
+            UserRepository userRepository,
+            TradeExecutor tradeExecutor,
+            PortfolioValuationService portfolioValuationService,
+            StockService stockService,
+            @Value("${stocks.orders.max-open-per-user:100}") int maxOpenOrdersPerUser) {
+        this.restingOrderRepository = restingOrderRepository;
+        this.userRepository = userRepository;
+        this.tradeExecutor = tradeExecutor;
+        this.portfolioValuationService = portfolioValuationService;
+        this.stockService = stockService;
+        this.maxOpenOrdersPerUser = maxOpenOrdersPerUser;
+        for (int i = 0; i < placementLocks.length; i++) {
+            placementLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (RestingOrder interrupted : restingOrderRepository.findByStatus(FILLING)) {
+            // the trade may or may not have run before the restart; never run it again
+            close(interrupted, REJECTED, null, "Fill was interrupted; check your transactions before placing it again");
+            log.warn("Closed order {} whose fill was interrupted", interrupted.getId());
+        }
+        List<RestingOrder> orders = restingOrderRepository.findByStatus(OPEN);
+        orders.forEach(this::rest);
+        stockService.addQuoteListener(this::onQuotes);
+        log.info("Loaded {} open orders", orders.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        fills.shutdown();
+    }
+
+    public RestingOrder placeOrder(User user, RestingOrderRequest request) {
+        if (request.getSymbol() == null || request.getSymbol().isBlank()) {
+            throw new RuntimeException("Symbol is required");
+        }
+        String side = request.getSide() == null ? "" : request.getSide().trim().toUpperCase();
+        if (!"BUY".equals(side) && !"SELL".equals(side)) {
+            throw new RuntimeException("Side must be BUY or SELL");
+        }
+        String type = request.getType() == null ? "" : request.getType().trim().toUpperCase();
+        if (!"LIMIT".equals(type) && !"STOP".equals(type)) {
+            throw new RuntimeException("Order type must be LIMIT or STOP");
+        }
+        if (request.getQuantity() <= 0 || request.getPrice() <= 0) {
+            throw new RuntimeException("Quantity and price must be greater than 0");
+        }
+
+        RestingOrder order;
+        synchronized (placementLocks[(int) Math.floorMod(user.getId(), (long) placementLocks.length)]) {
+            if (restingOrderRepository.countByUserIdAndStatus(user.getId(), OPEN) >= maxOpenOrdersPerUser) {
+                throw new RuntimeException("At most " + maxOpenOrdersPerUser + " open orders per user");
+            }
+            order = restingOrderRepository.save(RestingOrder.builder()
+                    .userId(user.getId())
+                    .stockSymbol(TradeExecutor.normalizeSymbol(request.getSymbol()))
+                    .side(side)
+                    .type(type)
+                    .quantity(request.getQuantity())
+                    .price(request.getPrice())
+                    .status(OPEN)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        rest(order);
+        log.info("Placed {} {} order {} for {} {} at {}", type, side, order.getId(),
+                order.getQuantity(), order.getStockSymbol(), order.getPrice());
+        return order;
+    }
+
+    public RestingOrder cancelOrder(User user, Long orderId) {
+        RestingOrder order = openOrders.get(orderId);
+        if (order == null || !order.getUserId().equals(user.getId())) {
+            throw new RuntimeException("Order not found or no longer open");
+        }
+        if (!openOrders.remove(orderId, order)) {
+            throw new RuntimeException("Order not found or no longer open");
+        }
+        OrderBook book = books.get(order.getStockSymbol());
+        if (book != null) {
+            book.remove(orderId);
+        }
+        return close(order, CANCELLED, null, null);
+    }
+
+    public List<RestingOrder> getOrders(User user) {
+        return restingOrderRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${stocks.orders.poll-interval-ms:5000}")
+    public void pollBookedSymbols() {
+        List<String> symbols = new ArrayList<>();
+        books.forEach((symbol, book) -> {
+            if (!book.isEmpty()) {
+                symbols.add(symbol);
+            }
+        });
+        if (symbols.isEmpty()) {
+            return;
+        }
+        try {
+            stockService.getQuotes(symbols);
+        } catch (Exception e) {
+            log.error("Error polling quotes for open orders: ", e);
+        }
+    }
+
+    private void rest(RestingOrder order) {
+        openOrders.put(order.getId(), order);
+        boolean buy = "BUY".equals(order.getSide());
+        boolean limit = "LIMIT".equals(order.getType());
+        // buy limits and sell stops fire when the price falls to them, the others when it rises
+        books.computeIfAbsent(order.getStockSymbol(), symbol -> new OrderBook())
+                .add(order.getId(), order.getPrice(), buy == limit);
+    }
+
+    private void onQuotes(Map<String, Quote> quotes) {
+        quotes.forEach((symbol, quote) -> {
+            OrderBook book = books.get(symbol);
+            double price = quote.getClose();
+            if (book == null || price <= 0) {
+                return;
+            }
+            book.trigger(price, orderId -> {
+                RestingOrder order = openOrders.remove(orderId);
+                if (order != null) {
+                    fills.execute(() -> fill(order, price));
+                }
+            });
+        });
+    }
+
+    private void fill(RestingOrder order, double price) {
+        try {
+            order.setStatus(FILLING);
+            restingOrderRepository.save(order);
+        } catch (Exception e) {
+            log.error("Could not mark order {} as filling, leaving it open: {}", order.getId(), e.getMessage());
+            order.setStatus(OPEN);
+            rest(order);
+            return;
+        }
+        try {
+            User user = userRepository.findById(order.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            portfolioValuationService.trade(user.getId(), () -> "BUY".equals(order.getSide())
+                    ? tradeExecutor.buy(user, order.getStockSymbol(), order.getQuantity(), price)
+                    : tradeExecutor.sell(user, order.getStockSymbol(), order.getQuantity(), price));
+            close(order, FILLED, price, null);
+            log.info("Filled {} order {} at {}", order.getType(), order.getId(), price);
+        } catch (Exception e) {
+            log.warn("Rejected {} order {} at {}: {}", order.getType(), order.getId(), price, e.getMessage());
+            close(order, REJECTED, null, e.getMessage());
+        }
+    }
+
+    private RestingOrder close(RestingOrder order, String status, Double fillPrice, String message) {
+        order.setStatus(status);
+        order.setClosedAt(LocalDateTime.now());
+        order.setFillPrice(fillPrice);
+        order.setMessage(message);
+        return restingOrderRepository.save(order);
+    }
+}
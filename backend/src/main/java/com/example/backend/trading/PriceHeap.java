@@ -0,0 +1,111 @@
+package com.example.backend.trading;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Binary heap of (price, order id) pairs in parallel primitive arrays, ordered so the top is
+ * the lowest price, or the highest for a max-heap. Push and pop are O(log n) and peeking is
+ * O(1), without boxing or per-entry objects.
+ */
+final class PriceHeap {
+    private final boolean max;
+    private double[] prices = new double[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    PriceHeap(boolean max) {
+        this.max = max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double peekPrice() {
+        return prices[0];
+    }
+
+    void push(double price, long id) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        prices[size] = price;
+        ids[size] = id;
+        siftUp(size++);
+    }
+
+    long pop() {
+        long top = ids[0];
+        size--;
+        if (size > 0) {
+            prices[0] = prices[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Keeps only the entries whose id matches and restores the heap order in O(n).
+     */
+    void retain(LongPredicate keep) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (keep.test(ids[i])) {
+                prices[kept] = prices[i];
+                ids[kept] = ids[i];
+                kept++;
+            }
+        }
+        size = kept;
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    // true if the entry at a belongs above the entry at b
+    private boolean before(int a, int b) {
+        return max ? prices[a] > prices[b] : prices[a] < prices[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!before(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int child = left + 1 < size && before(left + 1, left) ? left + 1 : left;
+            if (!before(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double price = prices[a];
+        prices[a] = prices[b];
+        prices[b] = price;
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
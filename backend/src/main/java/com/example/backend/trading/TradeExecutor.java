@@ -0,0 +1,41 @@
+package com.example.backend.trading;
+
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.dto.TradingStats;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+
+import java.util.List;
+
+/**
+ * Applies balance and position changes for a user. Implementations are selected with
+ * {@code stocks.trading.mode}. Rejected orders throw a RuntimeException whose message is
+ * safe to return to the client. Implementations key positions by {@link #normalizeSymbol(String)},
+ * so callers may pass symbols in any case.
+ */
+public interface TradeExecutor {
+
+    static String normalizeSymbol(String symbol) {
+        return symbol == null ? null : symbol.trim().toUpperCase();
+    }
+
+    Transaction buy(User user, String symbol, double quantity, double price);
+
+    Transaction sell(User user, String symbol, double quantity, double price);
+
+    User deposit(User user, double amount);
+
+    /**
+     * Executes the orders in sequence as one unit: if any order is rejected, none is applied.
+     */
+    List<Transaction> executeBatch(User user, List<OrderRequest> orders);
+
+    TradingStats getStats();
+
+    /**
+     * Returns once every trade acknowledged for the user can be read from the database.
+     * Executors that write through before answering have nothing to wait for.
+     */
+    default void awaitPersisted(Long userId) {
+    }
+}
@@ -0,0 +1,412 @@
+package com.example.backend.trading;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of executed trades, and the durable record of every trade the
+ * engine acknowledges. Shards append their trades; one writer thread writes everything that has
+ * queued up since its last flush in a single write and fsync (group commit), then completes the
+ * callers' replies and hands the trades to the {@link TradePersister}. The database is therefore
+ * a projection of the journal that may lag it slightly.
+ * <p>
+ * Records are written to segment files named after their first sequence number. On startup,
+ * records newer than the database checkpoint are replayed into the database before any order is
+ * accepted, and segments are deleted once the database has caught up with them.
+ * <p>
+ * Record layout: {@code int length, int crc32, long sequence, long userId, byte type,
+ * short symbolLength, symbol bytes, double quantity, price, total, balanceAfter, quantityAfter,
+ * averagePriceAfter, long timestamp}. A torn record at the end of a segment is ignored.
+ * <p>
+ * If a group cannot be written its trades are rejected, and so is every later trade the shard
+ * applied to the same accounts before reloading them: each trade carries the epoch of the
+ * account copy it was applied to, and the failed epochs are fenced off. Reloads read the
+ * database plus {@link #unpersistedState(long)}, so they see exactly the durable trades.
+ */
+class TradeJournal {
+    private static final Logger log = LoggerFactory.getLogger(TradeJournal.class);
+    private static final String[] TYPES = {ExecutedTrade.BUY, ExecutedTrade.SELL, ExecutedTrade.DEPOSIT};
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int FIXED_PAYLOAD_BYTES = Long.BYTES * 3 + 1 + Short.BYTES + Double.BYTES * 6;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxBatch;
+    private final TradePersister persister;
+    // called with the user id of every trade that could not be written so the engine can reload the account
+    private final LongConsumer onFailure;
+
+    // lists are kept whole so the trades of one batch order always share a group commit
+    private final Queue<List<ExecutedTrade>> pending = new ConcurrentLinkedQueue<>();
+    private final Thread thread = new Thread(this::run, "trade-journal");
+    private volatile boolean running = true;
+
+    // owned by the writer thread
+    private FileChannel channel;
+    private long channelBytes;
+    private long nextSequence;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    // user id -> newest account epoch with a rejected trade; later trades of that epoch were applied on top of it
+    private final Map<Long, Long> fencedEpochs = new HashMap<>();
+
+    // guarded by "this": per-user state after the newest durable trade the database does not have yet
+    private final Map<Long, AccountState> unpersisted = new HashMap<>();
+
+    // guarded by "this": finished segments and the last sequence each contains
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private Segment currentSegment;
+
+    TradeJournal(Path directory, long segmentBytes, int maxBatch, TradePersister persister, LongConsumer onFailure) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBatch = maxBatch;
+        this.persister = persister;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Replays every record after {@code checkpoint} through the given consumer in sequence order,
+     * then starts a new segment and the writer thread.
+     */
+    void open(long checkpoint, Consumer<List<ExecutedTrade>> replay) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "trades-*.journal")) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+
+        long lastSequence = checkpoint;
+        List<ExecutedTrade> batch = new ArrayList<>();
+        int replayed = 0;
+        for (Path segment : segments) {
+            for (ExecutedTrade trade : read(segment)) {
+                if (trade.sequence <= checkpoint) {
+                    continue;
+                }
+                batch.add(trade);
+                lastSequence = Math.max(lastSequence, trade.sequence);
+                if (batch.size() >= maxBatch) {
+                    replay.accept(batch);
+                    replayed += batch.size();
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            replay.accept(batch);
+            replayed += batch.size();
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} journaled trades into the database", replayed);
+        }
+
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+        nextSequence = lastSequence + 1;
+        openSegment();
+        thread.start();
+    }
+
+    /**
+     * Stops after writing everything already appended.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Error closing trade journal: {}", e.getMessage());
+        }
+    }
+
+    void append(List<ExecutedTrade> trades) {
+        pending.add(trades);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Called once the database holds every record up to {@code sequence}; deletes segments that are no longer needed.
+     */
+    synchronized void checkpointed(long sequence) {
+        if (unpersisted.values().removeIf(state -> state.lastSequence <= sequence)) {
+            notifyAll();
+        }
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence <= sequence) {
+            Path file = closedSegments.pollFirst().file;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Error deleting journal segment {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the user's balance and the positions changed by durable trades the database does
+     * not hold yet, or null if the database is up to date for the user. Journaled values are
+     * absolute, so they override what the database holds.
+     */
+    synchronized AccountState unpersistedState(long userId) {
+        AccountState state = unpersisted.get(userId);
+        if (state == null) {
+            return null;
+        }
+        AccountState copy = new AccountState();
+        copy.lastSequence = state.lastSequence;
+        copy.balance = state.balance;
+        state.positions.forEach((symbol, position) -> copy.positions.put(symbol, position.clone()));
+        return copy;
+    }
+
+    /**
+     * Waits until the database holds every durable trade of the user. Returns false if it still
+     * trails after {@code timeoutMillis}.
+     */
+    synchronized boolean awaitPersisted(long userId, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (unpersisted.containsKey(userId)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<ExecutedTrade> group = new ArrayList<>();
+        while (running || !pending.isEmpty()) {
+            List<ExecutedTrade> trades;
+            while (group.size() < maxBatch && (trades = pending.poll()) != null) {
+                group.addAll(trades);
+            }
+            if (group.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            commit(group);
+            group = new ArrayList<>();
+        }
+    }
+
+    private void commit(List<ExecutedTrade> candidates) {
+        List<ExecutedTrade> group = new ArrayList<>(candidates.size());
+        for (ExecutedTrade trade : candidates) {
+            Long fenced = fencedEpochs.get(trade.userId);
+            if (fenced != null && trade.epoch <= fenced) {
+                reject(trade);
+            } else {
+                group.add(trade);
+            }
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+
+        long firstSequence = nextSequence;
+        try {
+            buffer.clear();
+            for (ExecutedTrade trade : group) {
+                trade.sequence = nextSequence++;
+                encode(trade);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            channelBytes = channel.position();
+        } catch (IOException | RuntimeException e) {
+            log.error("Error writing {} trades to the journal, rejecting them: ", group.size(), e);
+            nextSequence = firstSequence;
+            try {
+                channel.truncate(channelBytes);
+                channel.position(channelBytes);
+            } catch (IOException truncateError) {
+                log.error("Error truncating journal segment: ", truncateError);
+            }
+            // Orders the shard applied after these were built on the rejected state: fence the
+            // account's epoch so they are rejected too, and have the engine reload the account
+            Map<Long, Long> failedEpochs = new HashMap<>();
+            for (ExecutedTrade trade : group) {
+                failedEpochs.merge(trade.userId, trade.epoch, Math::max);
+                reject(trade);
+            }
+            failedEpochs.forEach((userId, epoch) -> {
+                fencedEpochs.merge(userId, epoch, Math::max);
+                onFailure.accept(userId);
+            });
+            return;
+        }
+
+        synchronized (this) {
+            currentSegment.lastSequence = nextSequence - 1;
+            for (ExecutedTrade trade : group) {
+                AccountState state = unpersisted.computeIfAbsent(trade.userId, id -> new AccountState());
+                state.lastSequence = trade.sequence;
+                state.balance = trade.balanceAfter;
+                if (trade.symbol != null) {
+                    state.positions.put(trade.symbol, new double[]{trade.quantityAfter, trade.averagePriceAfter});
+                }
+            }
+        }
+        for (ExecutedTrade trade : group) {
+            trade.reply.complete(trade.result());
+        }
+        persister.submit(group);
+
+        if (channelBytes >= segmentBytes) {
+            try {
+                channel.close();
+                openSegment();
+            } catch (IOException e) {
+                log.error("Error starting a new journal segment: ", e);
+            }
+        }
+    }
+
+    private void reject(ExecutedTrade trade) {
+        trade.reply.completeExceptionally(new RuntimeException("Trade could not be saved"));
+    }
+
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("trades-%020d.journal", nextSequence));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channelBytes = 0;
+        synchronized (this) {
+            if (currentSegment != null) {
+                closedSegments.addLast(currentSegment);
+            }
+            currentSegment = new Segment(file, nextSequence - 1);
+        }
+    }
+
+    private void encode(ExecutedTrade trade) {
+        byte[] symbol = trade.symbol == null ? new byte[0] : trade.symbol.getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = FIXED_PAYLOAD_BYTES + symbol.length;
+        ensureCapacity(HEADER_BYTES + payloadBytes);
+
+        int start = buffer.position();
+        buffer.putInt(payloadBytes);
+        buffer.putInt(0);
+        buffer.putLong(trade.sequence);
+        buffer.putLong(trade.userId);
+        buffer.put((byte) typeIndex(trade.type));
+        buffer.putShort((short) symbol.length);
+        buffer.put(symbol);
+        buffer.putDouble(trade.quantity);
+        buffer.putDouble(trade.price);
+        buffer.putDouble(trade.total);
+        buffer.putDouble(trade.balanceAfter);
+        buffer.putDouble(trade.quantityAfter);
+        buffer.putDouble(trade.averagePriceAfter);
+        buffer.putLong(trade.timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start + HEADER_BYTES).limit(buffer.position()));
+        buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private List<ExecutedTrade> read(Path segment) throws IOException {
+        List<ExecutedTrade> trades = new ArrayList<>();
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        while (data.remaining() >= HEADER_BYTES) {
+            int payloadBytes = data.getInt();
+            int expectedCrc = data.getInt();
+            if (payloadBytes < FIXED_PAYLOAD_BYTES || payloadBytes > data.remaining()) {
+                log.warn("Ignoring torn record at the end of journal segment {}", segment);
+                break;
+            }
+            ByteBuffer payload = data.slice(data.position(), payloadBytes);
+            data.position(data.position() + payloadBytes);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                log.warn("Ignoring corrupt record at the end of journal segment {}", segment);
+                break;
+            }
+
+            long sequence = payload.getLong();
+            long userId = payload.getLong();
+            String type = TYPES[payload.get()];
+            byte[] symbol = new byte[payload.getShort()];
+            payload.get(symbol);
+            ExecutedTrade trade = new ExecutedTrade(userId, type,
+                    symbol.length == 0 ? null : new String(symbol, StandardCharsets.UTF_8),
+                    payload.getDouble(), payload.getDouble(), payload.getDouble(),
+                    payload.getDouble(), payload.getDouble(), payload.getDouble(),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(payload.getLong()), ZoneOffset.UTC),
+                    0, null, null);
+            trade.sequence = sequence;
+            trades.add(trade);
+        }
+        return trades;
+    }
+
+    private void ensureCapacity(int recordBytes) {
+        if (buffer.remaining() >= recordBytes) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + recordBytes));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private static int typeIndex(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown trade type " + type);
+    }
+
+    static final class AccountState {
+        long lastSequence;
+        double balance;
+        // symbol -> {quantity, average price}
+        final Map<String, double[]> positions = new HashMap<>();
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private long lastSequence;
+
+        private Segment(Path file, long lastSequence) {
+            this.file = file;
+            this.lastSequence = lastSequence;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.backend.trading;
+
+import com.example.backend.model.Holdings;
+import com.example.backend.model.JournalCheckpoint;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.JournalCheckpointRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.HoldingsService;
+import com.example.backend.service.UserPrincipalCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes journaled trades to the database. Trades from all shards are drained by one thread and
+ * written in a single transaction per batch together with the journal checkpoint, so a burst of
+ * orders costs one commit and a batch is never applied twice. The trades are already durable in
+ * the {@link TradeJournal}, so a failed batch is retried until it is written rather than dropped,
+ * and the checkpoint only ever covers trades that are in the database.
+ */
+class TradePersister {
+    private static final Logger log = LoggerFactory.getLogger(TradePersister.class);
+    static final String CHECKPOINT_NAME = "trades";
+    private static final int ALERT_EVERY_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    private final UserRepository userRepository;
+    private final HoldingsRepository holdingsRepository;
+    private final TransactionRepository transactionRepository;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final HoldingsService holdingsService;
+    private final TransactionTemplate transactionTemplate;
+    // called with the last sequence written so the journal can drop segments the database has caught up with
+    private final LongConsumer onCheckpoint;
+    private final int maxBatch;
+
+    private final Queue<ExecutedTrade> pending = new ConcurrentLinkedQueue<>();
+    private final Thread thread = new Thread(this::run, "trade-persister");
+    private volatile boolean running = true;
+
+    TradePersister(UserRepository userRepository, HoldingsRepository holdingsRepository,
+                   TransactionRepository transactionRepository, JournalCheckpointRepository checkpointRepository,
+                   UserPrincipalCache userPrincipalCache, HoldingsService holdingsService,
+                   TransactionTemplate transactionTemplate,
+                   LongConsumer onCheckpoint, int maxBatch) {
+        this.userRepository = userRepository;
+        this.holdingsRepository = holdingsRepository;
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.holdingsService = holdingsService;
+        this.transactionTemplate = transactionTemplate;
+        this.onCheckpoint = onCheckpoint;
+        this.maxBatch = maxBatch;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops after writing everything already submitted.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the sequence of the last journal record written to the database.
+     */
+    long checkpoint() {
+        return checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(JournalCheckpoint::getSequence)
+                .orElse(0L);
+    }
+
+    void submit(List<ExecutedTrade> trades) {
+        pending.addAll(trades);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Writes a batch on the calling thread, failing if it cannot be written. Used for journal replay.
+     */
+    void persistNow(List<ExecutedTrade> batch) {
+        commit(batch);
+    }
+
+    private void run() {
+        List<ExecutedTrade> batch = new ArrayList<>();
+        while (running || !pending.isEmpty()) {
+            ExecutedTrade trade;
+            while (batch.size() < maxBatch && (trade = pending.poll()) != null) {
+                batch.add(trade);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            if (!persist(batch)) {
+                // shutting down with trades still unsaved; they stay in the journal and are replayed on startup
+                log.error("Stopped with {} journaled trades not saved, they will be replayed from the journal",
+                        batch.size() + pending.size());
+                return;
+            }
+            batch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Writes the batch, retrying with backoff until it succeeds. Trades are never skipped: the
+     * checkpoint must not move past a sequence that is not in the database, or the journal
+     * segment holding it would be deleted. Returns false only if the persister is stopped first.
+     */
+    private boolean persist(List<ExecutedTrade> batch) {
+        long delayMillis = RETRY_DELAY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                commit(batch);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt % ALERT_EVERY_ATTEMPTS == 0) {
+                    log.error("Journaled trades {} to {} still cannot be saved after {} attempts, "
+                                    + "the database is falling behind the journal: ",
+                            batch.get(0).sequence, batch.get(batch.size() - 1).sequence, attempt, e);
+                } else {
+                    log.warn("Error saving batch of {} trades (attempt {}): {}", batch.size(), attempt, e.getMessage());
+                }
+            }
+            if (!running) {
+                return false;
+            }
+            LockSupport.parkNanos(this, delayMillis * 1_000_000);
+            delayMillis = Math.min(delayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private void commit(List<ExecutedTrade> batch) {
+        Collection<User> users = transactionTemplate.execute(status -> write(batch));
+        long lastSequence = batch.get(batch.size() - 1).sequence;
+        users.forEach(user -> {
+            userPrincipalCache.invalidate(user.getEmail());
+            holdingsService.invalidate(user.getId());
+        });
+        onCheckpoint.accept(lastSequence);
+    }
+
+    private Collection<User> write(List<ExecutedTrade> batch) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        batch.forEach(trade -> userIds.add(trade.userId));
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+
+        Map<String, Holdings> positions = new LinkedHashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (ExecutedTrade trade : batch) {
+            User user = users.get(trade.userId);
+            if (user == null) {
+                throw new IllegalStateException("User " + trade.userId + " no longer exists");
+            }
+            user.setBalance(trade.balanceAfter);
+            if (trade.symbol == null) {
+                continue;
+            }
+
+            Holdings holdings = positions.computeIfAbsent(trade.userId + ":" + trade.symbol,
+                    key -> holdingsRepository.findByUserAndStockSymbol(user, trade.symbol)
+                            .orElseGet(() -> Holdings.builder().user(user).stockSymbol(trade.symbol).build()));
+            holdings.setQuantity(trade.quantityAfter);
+            holdings.setAveragePrice(trade.averagePriceAfter);
+
+            transactions.add(Transaction.builder()
+                    .user(user)
+                    .stockSymbol(trade.symbol)
+                    .quantity(trade.quantity)
+                    .price(trade.price)
+                    .type(trade.type)
+                    .timestamp(trade.timestamp)
+                    .total(trade.total)
+                    .build());
+        }
+
+        for (Holdings holdings : positions.values()) {
+            if (holdings.getQuantity() > 0) {
+                holdingsRepository.save(holdings);
+            } else if (holdings.getId() != null) {
+                holdingsRepository.delete(holdings);
+            }
+        }
+        transactionRepository.saveAll(transactions);
+        checkpointRepository.save(JournalCheckpoint.builder()
+                .name(CHECKPOINT_NAME)
+                .sequence(batch.get(batch.size() - 1).sequence)
+                .build());
+        return users.values();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.backend.valuation;
+
+import com.example.backend.dto.PortfolioValuation;
+import com.example.backend.dto.PositionValuation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's positions in parallel primitive arrays, with portfolio totals kept up to date
+ * incrementally: a price change recomputes only the positions in that symbol and adjusts the
+ * totals by the difference. The response object is built at most once per change.
+ * Until a position has a price it is valued at its average price.
+ */
+final class Portfolio {
+    final long userId;
+
+    // guarded by "this"
+    private String[] symbols = new String[8];
+    private double[] quantity = new double[8];
+    private double[] averagePrice = new double[8];
+    private double[] lastPrice = new double[8];
+    private double[] previousClose = new double[8];
+    private int size;
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private double marketValue;
+    private double costBasis;
+    private double dayChange;
+    private double previousValue;
+    private double realizedPnl;
+    private PortfolioValuation snapshot;
+
+    private volatile long lastReadAt = System.currentTimeMillis();
+
+    Portfolio(long userId) {
+        this.userId = userId;
+    }
+
+    long getLastReadAt() {
+        return lastReadAt;
+    }
+
+    synchronized String[] symbols() {
+        return Arrays.copyOf(symbols, size);
+    }
+
+    synchronized void setRealizedPnl(double realizedPnl) {
+        this.realizedPnl = realizedPnl;
+        snapshot = null;
+    }
+
+    /**
+     * Sets the quantity and average price of a position, adding or removing it as needed.
+     * Returns true if the symbol was not held before.
+     */
+    synchronized boolean setPosition(String symbol, double newQuantity, double newAveragePrice) {
+        Integer i = index.get(symbol);
+        if (i == null) {
+            if (newQuantity <= 0) {
+                return false;
+            }
+            ensureCapacity(size + 1);
+            i = size++;
+            index.put(symbol, i);
+            symbols[i] = symbol;
+            quantity[i] = newQuantity;
+            averagePrice[i] = newAveragePrice;
+            lastPrice[i] = newAveragePrice;
+            previousClose[i] = newAveragePrice;
+            add(i, 1);
+            snapshot = null;
+            return true;
+        }
+        add(i, -1);
+        if (newQuantity <= 0) {
+            remove(i);
+        } else {
+            quantity[i] = newQuantity;
+            averagePrice[i] = newAveragePrice;
+            add(i, 1);
+        }
+        snapshot = null;
+        return false;
+    }
+
+    synchronized void addRealizedPnl(double amount) {
+        realizedPnl += amount;
+        snapshot = null;
+    }
+
+    synchronized double quantityOf(String symbol) {
+        Integer i = index.get(symbol);
+        return i == null ? 0 : quantity[i];
+    }
+
+    synchronized double averagePriceOf(String symbol) {
+        Integer i = index.get(symbol);
+        return i == null ? 0 : averagePrice[i];
+    }
+
+    /**
+     * Applies a new price to the position in the symbol, if held.
+     */
+    synchronized void updatePrice(String symbol, double price, double close) {
+        Integer i = index.get(symbol);
+        if (i == null || price <= 0 || (lastPrice[i] == price && previousClose[i] == close)) {
+            return;
+        }
+        add(i, -1);
+        lastPrice[i] = price;
+        previousClose[i] = close > 0 ? close : price;
+        add(i, 1);
+        snapshot = null;
+    }
+
+    synchronized PortfolioValuation valuation() {
+        lastReadAt = System.currentTimeMillis();
+        if (snapshot == null) {
+            List<PositionValuation> positions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                double value = quantity[i] * lastPrice[i];
+                double cost = quantity[i] * averagePrice[i];
+                positions.add(PositionValuation.builder()
+                        .symbol(symbols[i])
+                        .quantity(quantity[i])
+                        .averagePrice(averagePrice[i])
+                        .lastPrice(lastPrice[i])
+                        .previousClose(previousClose[i])
+                        .marketValue(value)
+                        .unrealizedPnl(value - cost)
+                        .unrealizedPnlPercent(cost == 0 ? 0 : (value - cost) / cost * 100)
+                        .dayChange(quantity[i] * (lastPrice[i] - previousClose[i]))
+                        .build());
+            }
+            snapshot = PortfolioValuation.builder()
+                    .marketValue(marketValue)
+                    .costBasis(costBasis)
+                    .unrealizedPnl(marketValue - costBasis)
+                    .realizedPnl(realizedPnl)
+                    .dayChange(dayChange)
+                    .dayChangePercent(previousValue == 0 ? 0 : dayChange / previousValue * 100)
+                    .positions(positions)
+                    .updatedAt(Instant.now())
+                    .build();
+        }
+        return snapshot;
+    }
+
+    // adds (sign 1) or subtracts (sign -1) position i's contribution to the totals
+    private void add(int i, int sign) {
+        marketValue += sign * quantity[i] * lastPrice[i];
+        costBasis += sign * quantity[i] * averagePrice[i];
+        dayChange += sign * quantity[i] * (lastPrice[i] - previousClose[i]);
+        previousValue += sign * quantity[i] * previousClose[i];
+    }
+
+    private void remove(int i) {
+        index.remove(symbols[i]);
+        int last = --size;
+        if (i != last) {
+            symbols[i] = symbols[last];
+            quantity[i] = quantity[last];
+            averagePrice[i] = averagePrice[last];
+            lastPrice[i] = lastPrice[last];
+            previousClose[i] = previousClose[last];
+            index.put(symbols[i], i);
+        }
+        symbols[last] = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= symbols.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, symbols.length * 2);
+        symbols = Arrays.copyOf(symbols, newCapacity);
+        quantity = Arrays.copyOf(quantity, newCapacity);
+        averagePrice = Arrays.copyOf(averagePrice, newCapacity);
+        lastPrice = Arrays.copyOf(lastPrice, newCapacity);
+        previousClose = Arrays.copyOf(previousClose, newCapacity);
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.backend.valuation;
+
+import com.example.backend.dto.PortfolioValuation;
+import com.example.backend.dto.Quote;
+import com.example.backend.dto.TransactionView;
+import com.example.backend.model.Holdings;
+import com.example.backend.model.Transaction;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.service.HoldingsService;
+import com.example.backend.service.StockService;
+import com.example.backend.trading.TradeExecutor;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a live valuation of every portfolio that has been viewed recently. Each portfolio is
+ * loaded once from the holdings and transaction history, then kept current from two event
+ * sources: trades executed through {@link #trade(Long, Supplier)} and quotes published by
+ * {@link StockService}. A quote only touches the portfolios holding that symbol, so reading a
+ * valuation costs no database or upstream call. Loading a portfolio waits out the user's trades
+ * in flight and any acknowledged trades the database does not hold yet, so every trade is
+ * counted exactly once: in the loaded state or as an update to it. Portfolios not read for
+ * {@code stocks.valuation.idle-eviction-ms} are dropped and reloaded on the next read.
+ */
+@Service
+public class PortfolioValuationService {
+    private static final Logger log = LoggerFactory.getLogger(PortfolioValuationService.class);
+
+    private final HoldingsService holdingsService;
+    private final TransactionRepository transactionRepository;
+    private final StockService stockService;
+    private final TradeExecutor tradeExecutor;
+    private final long idleEvictionMillis;
+    // trades of a user hold the read lock, loading the user's portfolio the write lock
+    private final ReadWriteLock[] userLocks = new ReadWriteLock[64];
+
+    private final Map<Long, Portfolio> portfolios = new ConcurrentHashMap<>();
+    // symbol -> loaded portfolios holding it
+    private final Map<String, Set<Portfolio>> holdersBySymbol = new ConcurrentHashMap<>();
+
+    public PortfolioValuationService(
+            HoldingsService holdingsService,
+            TransactionRepository transactionRepository,
+            StockService stockService,
+            TradeExecutor tradeExecutor,
+            @Value("${stocks.valuation.idle-eviction-ms:600000}") long idleEvictionMillis) {
+        this.holdingsService = holdingsService;
+        this.transactionRepository = transactionRepository;
+        this.stockService = stockService;
+        this.tradeExecutor = tradeExecutor;
+        this.idleEvictionMillis = idleEvictionMillis;
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        stockService.addQuoteListener(this::onQuotes);
+    }
+
+    public PortfolioValuation getValuation(Long userId) {
+        Portfolio portfolio = portfolios.get(userId);
+        if (portfolio == null) {
+            portfolio = load(userId);
+        }
+        return portfolio.valuation();
+    }
+
+    /**
+     * Executes a buy or sell and applies it to the user's portfolio, if it is loaded.
+     */
+    public Transaction trade(Long userId, Supplier<Transaction> execution) {
+        return tradeAll(userId, () -> List.of(execution.get())).get(0);
+    }
+
+    /**
+     * Executes a batch of buys and sells and applies them to the user's portfolio, if it is loaded.
+     */
+    public List<Transaction> tradeAll(Long userId, Supplier<List<Transaction>> execution) {
+        Lock lock = lockFor(userId).readLock();
+        lock.lock();
+        try {
+            List<Transaction> transactions = execution.get();
+            transactions.forEach(transaction -> onTrade(userId, transaction));
+            return transactions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onTrade(Long userId, Transaction transaction) {
+        Portfolio portfolio = portfolios.get(userId);
+        if (portfolio == null || transaction.getStockSymbol() == null) {
+            return;
+        }
+        String symbol = normalize(transaction.getStockSymbol());
+        synchronized (portfolio) {
+            double quantity = portfolio.quantityOf(symbol);
+            double averagePrice = portfolio.averagePriceOf(symbol);
+            if ("SELL".equals(transaction.getType())) {
+                portfolio.addRealizedPnl(transaction.getTotal() - transaction.getQuantity() * averagePrice);
+                portfolio.setPosition(symbol, quantity - transaction.getQuantity(), averagePrice);
+            } else {
+                double newQuantity = quantity + transaction.getQuantity();
+                double newAveragePrice = (quantity * averagePrice + transaction.getQuantity() * transaction.getPrice()) / newQuantity;
+                portfolio.setPosition(symbol, newQuantity, newAveragePrice);
+            }
+            updateHolder(symbol, portfolio);
+        }
+    }
+
+    /**
+     * Refreshes prices for every held symbol; the new quotes reach the portfolios through the
+     * quote listener. Also drops portfolios that have not been read for a while.
+     */
+    @Scheduled(fixedDelayString = "${stocks.valuation.refresh-interval-ms:15000}")
+    public void refreshPrices() {
+        long idleSince = System.currentTimeMillis() - idleEvictionMillis;
+        for (Portfolio portfolio : new ArrayList<>(portfolios.values())) {
+            if (portfolio.getLastReadAt() < idleSince) {
+                evict(portfolio);
+            }
+        }
+        if (holdersBySymbol.isEmpty()) {
+            return;
+        }
+        try {
+            stockService.getQuotes(new ArrayList<>(holdersBySymbol.keySet()));
+        } catch (Exception e) {
+            log.error("Error refreshing valuation prices: ", e);
+        }
+    }
+
+    private void onQuotes(Map<String, Quote> quotes) {
+        quotes.forEach((symbol, quote) -> {
+            Set<Portfolio> holders = holdersBySymbol.get(symbol);
+            if (holders != null) {
+                holders.forEach(portfolio -> portfolio.updatePrice(symbol, quote.getClose(), quote.getPreviousClose()));
+            }
+        });
+    }
+
+    private Portfolio load(Long userId) {
+        Portfolio portfolio = new Portfolio(userId);
+        Lock lock = lockFor(userId).writeLock();
+        lock.lock();
+        try {
+            Portfolio existing = portfolios.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            tradeExecutor.awaitPersisted(userId);
+            for (Holdings holdings : holdingsService.getPositions(userId)) {
+                portfolio.setPosition(normalize(holdings.getStockSymbol()), holdings.getQuantity(), holdings.getAveragePrice());
+            }
+            portfolio.setRealizedPnl(realizedPnl(userId));
+            portfolios.put(userId, portfolio);
+            for (String symbol : portfolio.symbols()) {
+                updateHolder(symbol, portfolio);
+            }
+        } finally {
+            lock.unlock();
+        }
+        String[] symbols = portfolio.symbols();
+        log.info("Loaded portfolio valuation for user {} with {} positions", userId, symbols.length);
+
+        if (symbols.length > 0) {
+            try {
+                stockService.getQuotes(List.of(symbols)).forEach((symbol, quote) ->
+                        portfolio.updatePrice(symbol, quote.getClose(), quote.getPreviousClose()));
+            } catch (Exception e) {
+                log.error("Error fetching prices for portfolio of user {}: ", userId, e);
+            }
+        }
+        return portfolio;
+    }
+
+    /**
+     * Replays the user's trades in order, tracking the average cost of each position, and
+     * returns the profit or loss realised by sells after brokerage.
+     */
+    private double realizedPnl(Long userId) {
+        List<TransactionView> transactions = transactionRepository.findHistory(userId);
+        Map<String, double[]> positions = new HashMap<>();
+        double realized = 0;
+        for (TransactionView transaction : transactions) {
+            if (transaction.getStockSymbol() == null) {
+                continue;
+            }
+            // {quantity, average price}
+            double[] position = positions.computeIfAbsent(normalize(transaction.getStockSymbol()), symbol -> new double[2]);
+            if ("SELL".equals(transaction.getType())) {
+                realized += transaction.getTotal() - transaction.getQuantity() * position[1];
+                position[0] -= transaction.getQuantity();
+                if (position[0] <= 0) {
+                    position[0] = 0;
+                    position[1] = 0;
+                }
+            } else {
+                double quantity = position[0] + transaction.getQuantity();
+                position[1] = (position[0] * position[1] + transaction.getQuantity() * transaction.getPrice()) / quantity;
+                position[0] = quantity;
+            }
+        }
+        return realized;
+    }
+
+    private void updateHolder(String symbol, Portfolio portfolio) {
+        if (portfolio.quantityOf(symbol) > 0) {
+            holdersBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(portfolio);
+        } else {
+            holdersBySymbol.computeIfPresent(symbol, (s, holders) -> {
+                holders.remove(portfolio);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+
+    private void evict(Portfolio portfolio) {
+        if (!portfolios.remove(portfolio.userId, portfolio)) {
+            return;
+        }
+        for (String symbol : portfolio.symbols()) {
+            holdersBySymbol.computeIfPresent(symbol, (s, holders) -> {
+                holders.remove(portfolio);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+
+    private ReadWriteLock lockFor(Long userId) {
+        return userLocks[(int) Math.floorMod(userId, (long) userLocks.length)];
+    }
+
+    private String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+}
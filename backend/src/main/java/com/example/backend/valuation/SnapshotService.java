@@ -0,0 +1,218 @@
+package com.example.backend.valuation;
+
+import com.example.backend.dto.HoldingExportRow;
+import com.example.backend.dto.Quote;
+import com.example.backend.model.PortfolioSnapshot;
+import com.example.backend.model.PositionSnapshot;
+import com.example.backend.model.User;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.PortfolioSnapshotRepository;
+import com.example.backend.repository.PositionSnapshotRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.StockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records each user's end-of-day equity, cash and per-symbol position values so performance
+ * charts read pre-aggregated rows instead of replaying trades against historical prices.
+ * <p>
+ * The nightly job values every user at the latest quotes, fetched once for all held symbols.
+ * It is incremental: users that already have a snapshot for the day are skipped, so a run that
+ * was interrupted or repeated only fills the gaps. {@link #snapshotUser(Long)} re-records one
+ * user's snapshot for today on demand; that row is {@code provisional} and the nightly job still
+ * replaces it, so an intraday value never stands as the day's close.
+ * <p>
+ * A position without a fresh quote, because the fetch was shed by the rate limit or failed, is
+ * valued at cost and its snapshot is flagged {@code estimated}. Estimated snapshots are never
+ * skipped as already recorded, and {@link #retryEstimated()} re-records today's until real
+ * quotes are available.
+ */
+@Service
+public class SnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final UserRepository userRepository;
+    private final HoldingsRepository holdingsRepository;
+    private final PortfolioSnapshotRepository portfolioSnapshotRepository;
+    private final PositionSnapshotRepository positionSnapshotRepository;
+    private final StockService stockService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public SnapshotService(
+            UserRepository userRepository,
+            HoldingsRepository holdingsRepository,
+            PortfolioSnapshotRepository portfolioSnapshotRepository,
+            PositionSnapshotRepository positionSnapshotRepository,
+            StockService stockService,
+            TransactionTemplate transactionTemplate,
+            @Value("${stocks.snapshots.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.holdingsRepository = holdingsRepository;
+        this.portfolioSnapshotRepository = portfolioSnapshotRepository;
+        this.positionSnapshotRepository = positionSnapshotRepository;
+        this.stockService = stockService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${stocks.snapshots.cron:0 30 23 * * *}")
+    public void snapshotAll() {
+        LocalDate today = LocalDate.now();
+        Map<String, Quote> quotes = fetchQuotes(holdingsRepository.findHeldSymbols());
+
+        int recorded = 0;
+        Page<User> page = userRepository.findAll(PageRequest.of(0, batchSize, Sort.by("id")));
+        while (true) {
+            List<User> users = page.getContent();
+            recorded += transactionTemplate.execute(status -> record(users, today, quotes, false, false));
+            if (!page.hasNext()) {
+                break;
+            }
+            page = userRepository.findAll(page.nextPageable());
+        }
+        log.info("Recorded {} portfolio snapshots for {}", recorded, today);
+    }
+
+    /**
+     * Re-records today's estimated snapshots with freshly fetched quotes.
+     */
+    @Scheduled(fixedDelayString = "${stocks.snapshots.retry-interval-ms:900000}")
+    public void retryEstimated() {
+        LocalDate today = LocalDate.now();
+        List<Long> userIds = portfolioSnapshotRepository.findBySnapshotDateAndEstimatedTrue(today).stream()
+                .map(PortfolioSnapshot::getUserId)
+                .toList();
+        int recorded = 0;
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            List<User> users = userRepository.findAllById(batch);
+            Map<String, Quote> quotes = fetchQuotes(holdingsRepository.findOpenPositions(batch).stream()
+                    .map(HoldingExportRow::getStockSymbol)
+                    .distinct()
+                    .toList());
+            recorded += transactionTemplate.execute(status -> record(users, today, quotes, true, null));
+        }
+        if (recorded > 0) {
+            log.info("Re-recorded {} estimated portfolio snapshots for {}", recorded, today);
+        }
+    }
+
+    /**
+     * Records or replaces today's snapshot for the user.
+     */
+    public PortfolioSnapshot snapshotUser(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        LocalDate today = LocalDate.now();
+        List<String> symbols = holdingsRepository.findOpenPositions(List.of(userId)).stream()
+                .map(HoldingExportRow::getStockSymbol)
+                .toList();
+        Map<String, Quote> quotes = fetchQuotes(symbols);
+        transactionTemplate.executeWithoutResult(status -> record(List.of(user), today, quotes, true, true));
+        return portfolioSnapshotRepository.findByUserIdInAndSnapshotDate(List.of(userId), today).get(0);
+    }
+
+    public List<PortfolioSnapshot> getSnapshots(Long userId, LocalDate from, LocalDate to) {
+        return portfolioSnapshotRepository.findByUserIdAndSnapshotDateBetweenOrderBySnapshotDateAsc(userId, from, to);
+    }
+
+    public List<PositionSnapshot> getPositionSnapshots(Long userId, LocalDate date) {
+        return positionSnapshotRepository.findByUserIdAndSnapshotDateOrderByStockSymbolAsc(userId, date);
+    }
+
+    private Map<String, Quote> fetchQuotes(List<String> symbols) {
+        if (symbols.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return stockService.getQuotes(symbols);
+        } catch (Exception e) {
+            log.error("Error fetching quotes for snapshots, recording them as estimated: ", e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Writes the snapshots of one batch of users and returns how many were written. Users that
+     * already have a snapshot for the day are skipped unless it is estimated or provisional, or
+     * {@code replace} is set. {@code provisional} marks the written rows; null keeps each row's flag.
+     */
+    private int record(List<User> users, LocalDate date, Map<String, Quote> quotes, boolean replace, Boolean provisional) {
+        Map<Long, PortfolioSnapshot> existing = portfolioSnapshotRepository
+                .findByUserIdInAndSnapshotDate(users.stream().map(User::getId).toList(), date).stream()
+                .collect(Collectors.toMap(PortfolioSnapshot::getUserId, Function.identity()));
+        List<User> pending = replace ? users : users.stream()
+                .filter(user -> !existing.containsKey(user.getId())
+                        || existing.get(user.getId()).isEstimated()
+                        || existing.get(user.getId()).isProvisional())
+                .toList();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> userIds = pending.stream().map(User::getId).collect(Collectors.toSet());
+        Map<Long, List<HoldingExportRow>> positionsByUser = new HashMap<>();
+        holdingsRepository.findOpenPositions(userIds).forEach(position ->
+                positionsByUser.computeIfAbsent(position.getUserId(), id -> new ArrayList<>()).add(position));
+        positionSnapshotRepository.deleteByUserIdInAndSnapshotDate(userIds, date);
+
+        List<PortfolioSnapshot> portfolios = new ArrayList<>(pending.size());
+        List<PositionSnapshot> positions = new ArrayList<>();
+        for (User user : pending) {
+            double positionsValue = 0;
+            boolean estimated = false;
+            for (HoldingExportRow holding : positionsByUser.getOrDefault(user.getId(), List.of())) {
+                Quote quote = quotes.get(holding.getStockSymbol().trim().toUpperCase());
+                // value at cost when there is no current quote rather than dropping the position
+                boolean priced = quote != null && quote.getClose() > 0 && stockService.isFresh(quote);
+                double price = priced ? quote.getClose() : holding.getAveragePrice();
+                double marketValue = holding.getQuantity() * price;
+                positionsValue += marketValue;
+                estimated |= !priced;
+                positions.add(PositionSnapshot.builder()
+                        .userId(user.getId())
+                        .snapshotDate(date)
+                        .stockSymbol(holding.getStockSymbol())
+                        .quantity(holding.getQuantity())
+                        .price(price)
+                        .marketValue(marketValue)
+                        .estimated(!priced)
+                        .build());
+            }
+
+            PortfolioSnapshot snapshot = existing.getOrDefault(user.getId(), PortfolioSnapshot.builder()
+                    .userId(user.getId())
+                    .snapshotDate(date)
+                    .build());
+            snapshot.setCashBalance(user.getBalance());
+            snapshot.setPositionsValue(positionsValue);
+            snapshot.setEquity(user.getBalance() + positionsValue);
+            snapshot.setEstimated(estimated);
+            if (provisional != null) {
+                snapshot.setProvisional(provisional);
+            }
+            portfolios.add(snapshot);
+        }
+        portfolioSnapshotRepository.saveAll(portfolios);
+        positionSnapshotRepository.saveAll(positions);
+        return portfolios.size();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.backend;
+
+import com.example.backend.model.Holdings;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+import com.example.backend.model.WatchList;
+import com.example.backend.model.WatchListSymbol;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.repository.WatchListRepository;
+import com.example.backend.repository.WatchListSymbolRepository;
+import com.example.backend.service.JwtService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Guards the list endpoints against N+1 selects: each must answer with a fixed number of
+ * statements however many rows the user has, and must not serialize user rows.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:query-count;DB_CLOSE_DELAY=-1",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"stocks.trading.journal.directory=target/query-count-journal",
+		"stocks.bars.directory=",
+		"stocks.reference-cache.persist=false"
+})
+class QueryCountTests {
+
+	private static final int ROWS = 20;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private HoldingsRepository holdingsRepository;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private WatchListRepository watchListRepository;
+
+	@Autowired
+	private WatchListSymbolRepository watchListSymbolRepository;
+
+	@Autowired
+	private JwtService jwtService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private User user;
+	private String token;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		user = userRepository.save(User.builder()
+				.name("Query Count")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("unused")
+				.balance(1000.0)
+				.build());
+		token = jwtService.generateToken(user);
+
+		List<Holdings> holdings = new ArrayList<>();
+		List<Transaction> transactions = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			String symbol = "SYM" + i;
+			holdings.add(Holdings.builder().user(user).stockSymbol(symbol).quantity(1).averagePrice(10).build());
+			transactions.add(Transaction.builder().user(user).stockSymbol(symbol).type("BUY")
+					.quantity(1).price(10).total(10).timestamp(LocalDateTime.now().minusMinutes(i)).build());
+			WatchList watchList = watchListRepository.save(WatchList.builder().name("List " + i).user(user).build());
+			watchListSymbolRepository.saveAll(List.of(
+					WatchListSymbol.builder().watchListId(watchList.getId()).symbol(symbol).position(1).build(),
+					WatchListSymbol.builder().watchListId(watchList.getId()).symbol("AAPL").position(2).build()));
+		}
+		holdingsRepository.saveAll(holdings);
+		transactionRepository.saveAll(transactions);
+
+		// load the principal into the auth cache so it is not counted against the first endpoint
+		mockMvc.perform(get("/api/transactions/stats").header("Authorization", "Bearer " + token));
+	}
+
+	@Test
+	void holdingsUseOneQuery() throws Exception {
+		assertThat(queries("/api/holdings")).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void sharedHoldingsUseTwoQueries() throws Exception {
+		assertThat(queries("/api/holdings/shared/" + user.getId())).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	void transactionHistoryUsesOneQuery() throws Exception {
+		assertThat(queries("/api/transactions")).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void transactionPageUsesOneQuery() throws Exception {
+		assertThat(queries("/api/transactions/page?limit=10")).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void watchlistsUseTwoQueries() throws Exception {
+		assertThat(queries("/api/watchlists")).isLessThanOrEqualTo(2);
+	}
+
+	/**
+	 * Performs the request and returns the number of statements it prepared.
+	 */
+	private long queries(String url) throws Exception {
+		statistics.clear();
+		MvcResult result = mockMvc.perform(get(url).header("Authorization", "Bearer " + token)).andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			result = mockMvc.perform(asyncDispatch(result)).andReturn();
+		}
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsString()).doesNotContain("password");
+		return statistics.getPrepareStatementCount();
+	}
+}
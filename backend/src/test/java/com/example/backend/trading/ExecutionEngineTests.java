@@ -0,0 +1,223 @@
+package com.example.backend.trading;
+
+import com.example.backend.dto.OrderRequest;
+import com.example.backend.model.Holdings;
+import com.example.backend.model.Transaction;
+import com.example.backend.model.User;
+import com.example.backend.repository.HoldingsRepository;
+import com.example.backend.repository.JournalCheckpointRepository;
+import com.example.backend.repository.TransactionRepository;
+import com.example.backend.repository.UserRepository;
+import com.example.backend.service.HoldingsService;
+import com.example.backend.service.UserPrincipalCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the execution engine against an in-memory database: orders are applied per account,
+ * acknowledged once journaled, and reach the database through the persister.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:execution-engine;DB_CLOSE_DELAY=-1",
+		"stocks.trading.mode=engine",
+		"stocks.bars.directory=",
+		"stocks.reference-cache.persist=false"
+})
+class ExecutionEngineTests {
+
+	@DynamicPropertySource
+	static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+		// a fresh journal per run, so records from an earlier run are never replayed into the new database
+		String directory = Files.createTempDirectory("execution-engine-journal").toString();
+		registry.add("stocks.trading.journal.directory", () -> directory);
+	}
+
+	@Autowired
+	private ExecutionEngine engine;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private HoldingsRepository holdingsRepository;
+
+	@Autowired
+	private TransactionRepository transactionRepository;
+
+	@Autowired
+	private JournalCheckpointRepository checkpointRepository;
+
+	@Autowired
+	private UserPrincipalCache userPrincipalCache;
+
+	@Autowired
+	private HoldingsService holdingsService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void tradesAreAppliedAndPersisted() {
+		User user = newUser(1000);
+
+		Transaction buy = engine.buy(user, "AAPL", 4, 100);
+		Transaction sell = engine.sell(user, "AAPL", 1, 100);
+
+		assertThat(buy.getTotal()).isEqualTo(400);
+		// sells pay 3% brokerage
+		assertThat(sell.getTotal()).isEqualTo(97);
+		assertThat(sell.getUser().getBalance()).isEqualTo(697);
+
+		eventually(() -> transactionRepository.findHistory(user.getId()).size() == 2);
+		assertThat(userRepository.findById(user.getId()).orElseThrow().getBalance()).isEqualTo(697);
+		Holdings holdings = holdingsRepository.findByUserIdAndQuantityGreaterThanOrderByIdAsc(user.getId(), 0).get(0);
+		assertThat(holdings.getStockSymbol()).isEqualTo("AAPL");
+		assertThat(holdings.getQuantity()).isEqualTo(3);
+		assertThat(holdings.getAveragePrice()).isEqualTo(100);
+	}
+
+	@Test
+	void rejectsOrdersTheAccountCannotCover() {
+		User user = newUser(100);
+
+		assertThatThrownBy(() -> engine.buy(user, "AAPL", 2, 100)).hasMessage("Insufficient balance");
+		assertThatThrownBy(() -> engine.sell(user, "AAPL", 1, 100)).hasMessage("Insufficient stocks to sell");
+		assertThat(engine.deposit(user, 50).getBalance()).isEqualTo(150);
+	}
+
+	@Test
+	void concurrentOrdersNeverOverdrawTheAccount() throws Exception {
+		User user = newUser(1000);
+		AtomicInteger filled = new AtomicInteger();
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> orders = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				orders.add(clients.submit(() -> {
+					try {
+						engine.buy(user, "AAPL", 1, 10);
+						filled.incrementAndGet();
+					} catch (RuntimeException e) {
+						assertThat(e).hasMessage("Insufficient balance");
+					}
+				}));
+			}
+			for (Future<?> order : orders) {
+				order.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			clients.shutdown();
+		}
+
+		assertThat(filled.get()).isEqualTo(100);
+		eventually(() -> transactionRepository.findHistory(user.getId()).size() == 100);
+		assertThat(userRepository.findById(user.getId()).orElseThrow().getBalance()).isEqualTo(0);
+	}
+
+	@Test
+	void batchIsAllOrNothing() {
+		User user = newUser(1000);
+
+		assertThatThrownBy(() -> engine.executeBatch(user, List.of(
+				order("BUY", "AAPL", 2, 100),
+				order("SELL", "AAPL", 3, 100))))
+				.hasMessage("Insufficient stocks to sell");
+		assertThat(engine.deposit(user, 1).getBalance()).isEqualTo(1001);
+
+		List<Transaction> applied = engine.executeBatch(user, List.of(
+				order("BUY", "AAPL", 2, 100),
+				order("SELL", "AAPL", 1, 100)));
+		assertThat(applied).extracting(Transaction::getType).containsExactly("BUY", "SELL");
+	}
+
+	@Test
+	void persisterWritesBatchesAndReportsTheCheckpoint() {
+		User user = newUser(1000);
+		List<Long> checkpoints = new ArrayList<>();
+		TradePersister persister = persister(checkpoints::add);
+
+		ExecutedTrade trade = new ExecutedTrade(user.getId(), ExecutedTrade.BUY, "MSFT", 2, 50, 100, 900, 2, 50,
+				LocalDateTime.now(), 0, null, null);
+		trade.sequence = 42;
+		persister.persistNow(List.of(trade));
+
+		assertThat(checkpoints).containsExactly(42L);
+		assertThat(userRepository.findById(user.getId()).orElseThrow().getBalance()).isEqualTo(900);
+		assertThat(transactionRepository.findHistory(user.getId())).hasSize(1);
+		assertThat(holdingsRepository.findByUserIdAndQuantityGreaterThanOrderByIdAsc(user.getId(), 0))
+				.extracting(Holdings::getStockSymbol).containsExactly("MSFT");
+	}
+
+	@Test
+	void persisterNeverSkipsATradeItCannotSave() {
+		List<Long> checkpoints = new ArrayList<>();
+		TradePersister persister = persister(checkpoints::add);
+		ExecutedTrade orphan = new ExecutedTrade(Long.MAX_VALUE, ExecutedTrade.DEPOSIT, null, 0, 0, 10, 10, 0, 0,
+				LocalDateTime.now(), 0, null, null);
+		orphan.sequence = 1;
+
+		persister.start();
+		persister.submit(List.of(orphan));
+		sleep(1500);
+		persister.stop();
+
+		assertThat(checkpoints).isEmpty();
+	}
+
+	private TradePersister persister(LongConsumer onCheckpoint) {
+		return new TradePersister(userRepository, holdingsRepository, transactionRepository, checkpointRepository,
+				userPrincipalCache, holdingsService, transactionTemplate, onCheckpoint, 500);
+	}
+
+	private User newUser(double balance) {
+		return userRepository.save(User.builder()
+				.name("Engine")
+				.email(UUID.randomUUID() + "@example.com")
+				.password("unused")
+				.balance(balance)
+				.build());
+	}
+
+	private static OrderRequest order(String type, String symbol, double quantity, double price) {
+		return OrderRequest.builder().type(type).symbol(symbol).quantity(quantity).price(price).build();
+	}
+
+	private static void eventually(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+			sleep(20);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.backend.trading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderBookTests {
+
+	private final OrderBook book = new OrderBook();
+
+	@Test
+	void triggersOrdersAtOrBeyondTheirPrice() {
+		// a buy limit at 100 and a sell limit at 110
+		book.add(1, 100, true);
+		book.add(2, 110, false);
+
+		assertThat(trigger(105)).isEmpty();
+		assertThat(trigger(100)).containsExactly(1L);
+		assertThat(trigger(111)).containsExactly(2L);
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	@Test
+	void triggersEveryCrossedOrderOnce() {
+		book.add(1, 100, true);
+		book.add(2, 95, true);
+		book.add(3, 90, true);
+
+		assertThat(trigger(94)).containsExactly(1L, 2L);
+		assertThat(trigger(94)).isEmpty();
+		assertThat(trigger(80)).containsExactly(3L);
+	}
+
+	@Test
+	void removedOrdersNeverTrigger() {
+		book.add(1, 100, true);
+		book.add(2, 100, true);
+		book.remove(1);
+
+		assertThat(trigger(50)).containsExactly(2L);
+	}
+
+	@Test
+	void compactionKeepsLiveOrders() {
+		for (long id = 0; id < 500; id++) {
+			book.add(id, 100 + id, false);
+		}
+		for (long id = 0; id < 500; id++) {
+			if (id != 250) {
+				book.remove(id);
+			}
+		}
+
+		assertThat(book.isEmpty()).isFalse();
+		assertThat(trigger(1000)).containsExactly(250L);
+		assertThat(book.isEmpty()).isTrue();
+	}
+
+	private List<Long> trigger(double price) {
+		List<Long> triggered = new ArrayList<>();
+		book.trigger(price, triggered::add);
+		return triggered;
+	}
+}
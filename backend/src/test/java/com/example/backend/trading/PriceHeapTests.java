@@ -0,0 +1,66 @@
+package com.example.backend.trading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceHeapTests {
+
+	@Test
+	void minHeapPopsLowestPriceFirst() {
+		PriceHeap heap = new PriceHeap(false);
+		Random random = new Random(7);
+		for (long id = 0; id < 1000; id++) {
+			heap.push(random.nextInt(500), id);
+		}
+
+		assertThat(drainPrices(heap)).hasSize(1000).isSorted();
+	}
+
+	@Test
+	void maxHeapPopsHighestPriceFirst() {
+		PriceHeap heap = new PriceHeap(true);
+		heap.push(10, 1);
+		heap.push(30, 2);
+		heap.push(20, 3);
+
+		assertThat(heap.peekPrice()).isEqualTo(30);
+		assertThat(heap.pop()).isEqualTo(2);
+		assertThat(heap.pop()).isEqualTo(3);
+		assertThat(heap.pop()).isEqualTo(1);
+		assertThat(heap.isEmpty()).isTrue();
+	}
+
+	@Test
+	void retainKeepsMatchingEntriesInHeapOrder() {
+		PriceHeap heap = new PriceHeap(false);
+		for (long id = 0; id < 100; id++) {
+			heap.push(100 - id, id);
+		}
+
+		heap.retain(id -> id % 2 == 0);
+
+		assertThat(heap.size()).isEqualTo(50);
+		List<Long> ids = new ArrayList<>();
+		while (!heap.isEmpty()) {
+			ids.add(heap.pop());
+		}
+		assertThat(ids).allMatch(id -> id % 2 == 0);
+		// lower prices belong to higher ids
+		assertThat(ids.get(0)).isEqualTo(98);
+		assertThat(ids.get(49)).isEqualTo(0);
+	}
+
+	private List<Double> drainPrices(PriceHeap heap) {
+		List<Double> prices = new ArrayList<>();
+		while (!heap.isEmpty()) {
+			prices.add(heap.peekPrice());
+			heap.pop();
+		}
+		return prices;
+	}
+}
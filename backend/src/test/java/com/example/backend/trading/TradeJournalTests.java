@@ -0,0 +1,168 @@
+package com.example.backend.trading;
+
+import com.example.backend.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Group commit, replay and failure fencing of the trade journal, without a database: the
+ * persister is never started, so submitted trades only queue up in it.
+ */
+class TradeJournalTests {
+
+	@TempDir
+	Path directory;
+
+	private final List<Long> reloaded = new ArrayList<>();
+	private TradeJournal journal;
+
+	@AfterEach
+	void tearDown() {
+		if (journal != null) {
+			journal.stop();
+		}
+	}
+
+	@Test
+	void replaysRecordsAfterTheCheckpoint() throws Exception {
+		journal = open(0, batch -> { });
+		ExecutedTrade first = trade(1, 1, "AAPL", 900);
+		ExecutedTrade second = trade(1, 1, "MSFT", 800);
+		ExecutedTrade deposit = new ExecutedTrade(2, ExecutedTrade.DEPOSIT, null, 0, 0, 50, 150, 0, 0,
+				LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), 1, user(2), new CompletableFuture<>());
+		journal.append(List.of(first, second, deposit));
+		await(first, second, deposit);
+		journal.stop();
+
+		List<ExecutedTrade> replayed = new ArrayList<>();
+		journal = open(first.sequence, replayed::addAll);
+
+		assertThat(replayed).extracting(trade -> trade.sequence).containsExactly(second.sequence, deposit.sequence);
+		ExecutedTrade trade = replayed.get(0);
+		assertThat(trade.userId).isEqualTo(1);
+		assertThat(trade.symbol).isEqualTo("MSFT");
+		assertThat(trade.balanceAfter).isEqualTo(800);
+		assertThat(trade.timestamp).isEqualTo(second.timestamp);
+		assertThat(replayed.get(1).symbol).isNull();
+		assertThat(replayed.get(1).total).isEqualTo(50);
+	}
+
+	@Test
+	void ignoresATornRecordAtTheEnd() throws Exception {
+		journal = open(0, batch -> { });
+		ExecutedTrade trade = trade(1, 1, "AAPL", 900);
+		journal.append(List.of(trade));
+		await(trade);
+		journal.stop();
+
+		try (var segments = Files.list(directory)) {
+			Path segment = segments.findFirst().orElseThrow();
+			Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+		}
+
+		List<ExecutedTrade> replayed = new ArrayList<>();
+		journal = open(0, replayed::addAll);
+		assertThat(replayed).extracting(t -> t.sequence).containsExactly(trade.sequence);
+	}
+
+	@Test
+	void continuesSequenceNumbersAfterReopening() throws Exception {
+		journal = open(0, batch -> { });
+		ExecutedTrade first = trade(1, 1, "AAPL", 900);
+		journal.append(List.of(first));
+		await(first);
+		journal.stop();
+
+		journal = open(first.sequence, batch -> { });
+		ExecutedTrade second = trade(1, 1, "AAPL", 800);
+		journal.append(List.of(second));
+		await(second);
+		assertThat(second.sequence).isEqualTo(first.sequence + 1);
+	}
+
+	@Test
+	void tracksDurableStateUntilCheckpointed() throws Exception {
+		journal = open(0, batch -> { });
+		ExecutedTrade trade = trade(1, 1, "AAPL", 900);
+		journal.append(List.of(trade));
+		await(trade);
+
+		TradeJournal.AccountState state = journal.unpersistedState(1);
+		assertThat(state.balance).isEqualTo(900);
+		assertThat(state.positions.get("AAPL")).containsExactly(1, 100);
+
+		journal.checkpointed(trade.sequence);
+		assertThat(journal.unpersistedState(1)).isNull();
+	}
+
+	@Test
+	void fencesTheAccountAfterAFailedWrite() throws Exception {
+		journal = open(0, batch -> { });
+		ExecutedTrade durable = trade(1, 1, "AAPL", 900);
+		journal.append(List.of(durable));
+		await(durable);
+
+		// make the next group commit fail
+		FileChannel channel = (FileChannel) ReflectionTestUtils.getField(journal, "channel");
+		channel.close();
+		ExecutedTrade failed = trade(1, 1, "AAPL", 800);
+		journal.append(List.of(failed));
+		assertThatThrownBy(() -> failed.reply.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+		assertThat(reloaded).containsExactly(1L);
+
+		ReflectionTestUtils.setField(journal, "channel", FileChannel.open(directory.resolve("replacement.journal"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+		// applied on top of the failed trade before the engine reloaded the account
+		ExecutedTrade stale = trade(1, 1, "AAPL", 700);
+		ExecutedTrade otherAccount = trade(2, 1, "AAPL", 500);
+		journal.append(List.of(stale, otherAccount));
+		assertThatThrownBy(() -> stale.reply.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+		await(otherAccount);
+
+		ExecutedTrade reloadedAccount = trade(1, 2, "AAPL", 850);
+		journal.append(List.of(reloadedAccount));
+		await(reloadedAccount);
+		assertThat(journal.unpersistedState(1).balance).isEqualTo(850);
+	}
+
+	private TradeJournal open(long checkpoint, Consumer<List<ExecutedTrade>> replay) throws IOException {
+		TradePersister persister = new TradePersister(null, null, null, null, null, null, null, sequence -> { }, 500);
+		TradeJournal opened = new TradeJournal(directory, 1 << 20, 500, persister, reloaded::add);
+		opened.open(checkpoint, replay);
+		return opened;
+	}
+
+	private static ExecutedTrade trade(long userId, long epoch, String symbol, double balanceAfter) {
+		return new ExecutedTrade(userId, ExecutedTrade.BUY, symbol, 1, 100, 100, balanceAfter, 1, 100,
+				LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), epoch, user(userId), new CompletableFuture<>());
+	}
+
+	private static User user(long id) {
+		return User.builder().id(id).balance(0).build();
+	}
+
+	private static void await(ExecutedTrade... trades) throws Exception {
+		for (ExecutedTrade trade : trades) {
+			trade.reply.get(5, TimeUnit.SECONDS);
+		}
+	}
+}